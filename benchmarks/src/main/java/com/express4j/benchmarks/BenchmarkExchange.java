@@ -0,0 +1,105 @@
+package com.express4j.benchmarks;
+
+import com.express4j.transport.Exchange;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An exchange held entirely in memory, so benchmarks measure the framework rather than sockets
+ * The response body is counted and discarded.
+ */
+public class BenchmarkExchange implements Exchange {
+	private static final InetSocketAddress REMOTE = InetSocketAddress.createUnresolved("127.0.0.1", 40000);
+	private static final InetSocketAddress LOCAL = InetSocketAddress.createUnresolved("127.0.0.1", 8080);
+	
+	private final String method;
+	private final String uri;
+	private final Map<String, List<String>> requestHeaders;
+	private final byte[] body;
+	private final TreeMap<String, List<String>> responseHeaders = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+	private int status = -1;
+	private long written = 0;
+	
+	public BenchmarkExchange(String method, String uri, Map<String, List<String>> requestHeaders, byte[] body) {
+		this.method = method;
+		this.uri = uri;
+		this.requestHeaders = requestHeaders;
+		this.body = body;
+	}
+	
+	/**
+	 * Builds a case-insensitive, read-only header map from name and value pairs
+	 *
+	 * @param pairs
+	 * @return
+	 */
+	public static Map<String, List<String>> headers(String... pairs) {
+		TreeMap<String, List<String>> headers = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+		for(int i = 0; i + 1 < pairs.length; i += 2) {
+			List<String> values = headers.get(pairs[i]);
+			if(values == null)
+				headers.put(pairs[i], values = new ArrayList<String>(1));
+			values.add(pairs[i + 1]);
+		}
+		return Collections.unmodifiableMap(headers);
+	}
+	
+	/**
+	 * Returns how many body bytes the response wrote
+	 *
+	 * @return
+	 */
+	public long getWritten() { return this.written; }
+	
+	@Override
+	public String getRequestMethod() { return this.method; }
+	@Override
+	public String getRequestURI() { return this.uri; }
+	@Override
+	public String getProtocol() { return "HTTP/1.1"; }
+	@Override
+	public InetSocketAddress getRemoteAddress() { return REMOTE; }
+	@Override
+	public InetSocketAddress getLocalAddress() { return LOCAL; }
+	@Override
+	public Map<String, List<String>> getRequestHeaders() { return this.requestHeaders; }
+	@Override
+	public InputStream getRequestBody() { return new ByteArrayInputStream(this.body); }
+	@Override
+	public Map<String, List<String>> getResponseHeaders() { return this.responseHeaders; }
+	@Override
+	public int getResponseCode() { return this.status; }
+	@Override
+	public void close() {}
+	
+	@Override
+	public void sendResponseHeaders(int status, long length) throws IOException {
+		if(this.status != -1)
+			throw new IOException("Headers already sent");
+		this.status = status;
+	}
+	
+	@Override
+	public OutputStream getResponseBody() {
+		return new OutputStream() {
+			@Override
+			public void write(int b) {
+				BenchmarkExchange.this.written++;
+			}
+			
+			@Override
+			public void write(byte[] b, int off, int len) {
+				BenchmarkExchange.this.written += len;
+			}
+		};
+	}
+}
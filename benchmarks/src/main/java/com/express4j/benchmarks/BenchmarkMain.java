@@ -0,0 +1,23 @@
+package com.express4j.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the usual JMH command line, writing results as JSON to <code>jmh-result.json</code> unless told otherwise
+ * Example: <code>java -jar target/benchmarks.jar Routing -rff routing.json</code>
+ */
+public class BenchmarkMain {
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions cli = new CommandLineOptions(args);
+		Options options = new OptionsBuilder()
+			.parent(cli)
+			.resultFormat(cli.getResultFormat().orElse(ResultFormatType.JSON))
+			.result(cli.getResult().orElse("jmh-result.json"))
+			.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,39 @@
+package com.express4j.benchmarks;
+
+import com.express4j.Express4J;
+import com.express4j.exception.DirectoryRequiredException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Shared setup for benchmarks
+ */
+class Fixtures {
+	/**
+	 * Creates an app rooted in a fresh temporary directory, with logging and metrics left at their defaults
+	 *
+	 * @return
+	 * @throws IOException
+	 * @throws DirectoryRequiredException
+	 */
+	static Express4J app() throws IOException, DirectoryRequiredException {
+		File root = Files.createTempDirectory("express4j-bench").toFile();
+		root.deleteOnExit();
+		return new Express4J(root.getPath());
+	}
+	
+	/**
+	 * Deletes a directory created by <code>Fixtures.app()</code>
+	 *
+	 * @param directory
+	 */
+	static void delete(File directory) {
+		File[] files = directory.listFiles();
+		if(files != null)
+			for(File file : files)
+				delete(file);
+		directory.delete();
+	}
+}
@@ -0,0 +1,85 @@
+package com.express4j.benchmarks;
+
+import com.express4j.Express4J;
+import com.express4j.service.HttpRequest;
+import com.express4j.service.obj.Cookie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Header, query string and cookie parsing in <code>HttpRequest</code>
+ * Every invocation parses from scratch, as <code>HttpRequest</code> memoizes what it parsed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestParsingBenchmark {
+	private Express4J app;
+	private BenchmarkExchange exchange;
+	
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		this.app = Fixtures.app();
+		this.exchange = new BenchmarkExchange("GET", "/search?q=express4j&page=3&size=50&sort=name&order=asc&filter=a&filter=b&lang=en&utm_source=news&utm_medium=email", BenchmarkExchange.headers(
+			"Host", "localhost:8080",
+			"User-Agent", "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0 Safari/537.36",
+			"Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,*/*;q=0.8",
+			"Accept-Language", "en-US,en;q=0.9,fr;q=0.5",
+			"Accept-Encoding", "gzip, deflate, br",
+			"Referer", "http://localhost:8080/",
+			"Connection", "keep-alive",
+			"Cache-Control", "max-age=0",
+			"Upgrade-Insecure-Requests", "1",
+			"Cookie", "session=3f2a9c0e4b7d41a8b1c2d3e4f5a6b7c8; theme=dark; lang=en; cart=%7B%22items%22%3A3%7D; _ga=GA1.1.123456789.1700000000"
+		), new byte[0]);
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		Fixtures.delete(new File(this.app.getRoot()));
+	}
+	
+	@Benchmark
+	public String header() {
+		HttpRequest req = new HttpRequest(this.app, this.exchange);
+		return req.headers().first("accept-language");
+	}
+	
+	@Benchmark
+	public String hostname() {
+		return new HttpRequest(this.app, this.exchange).getHostname();
+	}
+	
+	@Benchmark
+	public HashMap<String, String> query() {
+		return new HttpRequest(this.app, this.exchange).getQuery();
+	}
+	
+	@Benchmark
+	public Cookie cookie() {
+		return new HttpRequest(this.app, this.exchange).getCookie("session");
+	}
+	
+	@Benchmark
+	public boolean accepts() {
+		HttpRequest req = new HttpRequest(this.app, this.exchange);
+		return req.acceptsEncoding("br") && req.acceptsLanguage("fr");
+	}
+}
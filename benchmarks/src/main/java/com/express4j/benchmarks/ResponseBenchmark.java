@@ -0,0 +1,157 @@
+package com.express4j.benchmarks;
+
+import com.express4j.Express4J;
+import com.express4j.RequestHandler;
+import com.express4j.service.HttpRequest;
+import com.express4j.service.HttpResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the main ways to answer a request: JSON, static files and error documents
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseBenchmark {
+	@Param({ "identity", "gzip" })
+	public String encoding;
+	
+	private Express4J app;
+	private RequestHandler handler;
+	private Map<String, List<String>> headers;
+	private Item item;
+	private List<Item> items;
+	private File small;
+	private File large;
+	
+	public static class Item {
+		int id;
+		String name;
+		double price;
+		boolean available;
+		List<String> tags;
+		
+		Item(int id) {
+			this.id = id;
+			this.name = "item-" + id;
+			this.price = id * 1.25;
+			this.available = id % 3 != 0;
+			this.tags = new ArrayList<String>();
+			this.tags.add("tag" + (id % 7));
+			this.tags.add("tag" + (id % 11));
+		}
+	}
+	
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		this.app = Fixtures.app();
+		this.handler = new RequestHandler(this.app);
+		this.headers = BenchmarkExchange.headers("Host", "localhost", "Accept", "*/*", "Accept-Encoding", this.encoding);
+		this.item = new Item(1);
+		this.items = new ArrayList<Item>();
+		for(int i = 0; i < 100; i++)
+			this.items.add(new Item(i));
+		this.small = this.write("small.txt", 1024);
+		this.large = this.write("large.txt", 256 * 1024);
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.app.getLog().close();
+		Fixtures.delete(new File(this.app.getRoot()));
+	}
+	
+	@Benchmark
+	public long sendJson() throws Exception {
+		BenchmarkExchange exchange = this.exchange("/item");
+		HttpResponse res = this.response(exchange);
+		res.sendJson(this.item);
+		res.close();
+		return exchange.getWritten();
+	}
+	
+	@Benchmark
+	public long sendJsonArray() throws Exception {
+		BenchmarkExchange exchange = this.exchange("/items");
+		HttpResponse res = this.response(exchange);
+		res.sendJsonArray(this.items);
+		res.close();
+		return exchange.getWritten();
+	}
+	
+	@Benchmark
+	public long sendFileSmall() throws Exception {
+		BenchmarkExchange exchange = this.exchange("/small.txt");
+		HttpResponse res = this.response(exchange);
+		res.sendFile(this.small);
+		res.close();
+		return exchange.getWritten();
+	}
+	
+	@Benchmark
+	public long sendFileLarge() throws Exception {
+		BenchmarkExchange exchange = this.exchange("/large.txt");
+		HttpResponse res = this.response(exchange);
+		res.sendFile(this.large);
+		res.close();
+		return exchange.getWritten();
+	}
+	
+	@Benchmark
+	public long errorDocument() throws Exception {
+		BenchmarkExchange exchange = this.exchange("/missing");
+		HttpRequest req = new HttpRequest(this.app, exchange);
+		HttpResponse res = new HttpResponse(this.app, exchange, req);
+		this.handler.sendErrorDocument(404, req, res);
+		res.close();
+		return exchange.getWritten();
+	}
+	
+	private BenchmarkExchange exchange(String uri) {
+		return new BenchmarkExchange("GET", uri, this.headers, new byte[0]);
+	}
+	
+	private HttpResponse response(BenchmarkExchange exchange) {
+		return new HttpResponse(this.app, exchange, new HttpRequest(this.app, exchange));
+	}
+	
+	private File write(String name, int length) throws Exception {
+		File file = new File(this.app.getRoot(), name);
+		Random random = new Random(length);
+		StringBuilder text = new StringBuilder(length);
+		while(text.length() < length)
+			text.append("word").append(random.nextInt(1000)).append(random.nextInt(10) == 0 ? '\n' : ' ');
+		text.setLength(length);
+		OutputStream os = new FileOutputStream(file);
+		try {
+			os.write(text.toString().getBytes("UTF-8"));
+		} finally {
+			os.close();
+		}
+		return file;
+	}
+}
@@ -0,0 +1,91 @@
+package com.express4j.benchmarks;
+
+import com.express4j.Express4J;
+import com.express4j.RequestHandler;
+import com.express4j.events.Request;
+import com.express4j.routing.Route;
+import com.express4j.routing.RouteMatch;
+import com.express4j.routing.Router;
+import com.express4j.service.HttpRequest;
+import com.express4j.service.HttpResponse;
+import com.express4j.service.obj.Method;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Route resolution against tables of <code>:param</code> routes, on its own and through <code>RequestHandler</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutingBenchmark {
+	@Param({ "10", "100", "1000" })
+	public int routes;
+	
+	private Express4J app;
+	private Router router;
+	private RequestHandler handler;
+	private String first;
+	private String last;
+	private String miss;
+	
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		this.app = Fixtures.app();
+		this.router = new Router();
+		Request ok = new Request() {
+			@Override
+			public void handle(HttpRequest req, HttpResponse res) throws Exception {
+				res.send(req.getParam("item"));
+			}
+		};
+		for(int i = 0; i < this.routes; i++) {
+			String path = "/api/resource" + i + "/:id/items/:item";
+			this.router.add(Method.GET, path, false, Route.wrap(ok));
+			this.app.get(path, ok);
+		}
+		this.first = "/api/resource0/42/items/7";
+		this.last = "/api/resource" + (this.routes - 1) + "/42/items/7";
+		this.miss = "/api/missing/42/items/7";
+		this.handler = new RequestHandler(this.app);
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.app.getLog().close();
+		Fixtures.delete(new File(this.app.getRoot()));
+	}
+	
+	@Benchmark
+	public RouteMatch[] matchFirst() { return this.router.match(Method.GET, this.first); }
+	
+	@Benchmark
+	public RouteMatch[] matchLast() { return this.router.match(Method.GET, this.last); }
+	
+	@Benchmark
+	public RouteMatch[] matchMiss() { return this.router.match(Method.GET, this.miss); }
+	
+	@Benchmark
+	public long handle() {
+		BenchmarkExchange exchange = new BenchmarkExchange("GET", this.last, BenchmarkExchange.headers("Host", "localhost"), new byte[0]);
+		this.handler.handle(exchange);
+		return exchange.getWritten();
+	}
+}
@@ -1,14 +1,26 @@
 package com.express4j;
 
+import com.express4j.cache.StaticCache;
+import com.express4j.events.AsyncRequest;
+import com.express4j.events.Middleware;
 import com.express4j.events.Request;
 import com.express4j.exception.DirectoryRequiredException;
-import com.express4j.service.HttpRequest;
-import com.express4j.service.HttpResponse;
+import com.express4j.form.FormSettings;
+import com.express4j.logging.RequestLog;
+import com.express4j.metrics.MetricsRegistry;
+import com.express4j.routing.Route;
+import com.express4j.routing.Router;
+import com.express4j.service.StaticMount;
+import com.express4j.service.obj.CompressionSettings;
 import com.express4j.service.obj.Method;
+import com.express4j.service.obj.ServerSettings;
+import com.express4j.template.TemplateEngine;
+import com.express4j.transport.Transport;
+import com.express4j.utils.ThreadUtils;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.sun.net.httpserver.HttpServer;
 import lombok.Getter;
+import lombok.Setter;
 
 import java.io.File;
 import java.io.IOException;
@@ -16,19 +28,31 @@ import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 public class Express4J {
 	public static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
 	
 	private InetSocketAddress address;
-	private HttpServer server;
+	private Transport server;
 	private RequestHandler handler;
+	private ExecutorService executor;
 	
-	protected HashMap<Method, HashMap<String, Request>> listeners;
+	protected Router router;
 	protected HashMap<Integer, File> error_documents;
+	protected List<StaticMount> mounts;
 	
 	@Getter private int port;
 	@Getter private String root;
+	@Getter private ServerSettings settings;
+	@Getter @Setter private StaticCache staticCache;
+	@Getter @Setter private CompressionSettings compression;
+	@Getter @Setter private TemplateEngine templates;
+	@Getter @Setter private long maxBodySize;
+	@Getter @Setter private FormSettings form;
+	@Getter @Setter private Gson gson;
+	@Getter @Setter private MetricsRegistry metrics;
+	@Getter @Setter private RequestLog log;
 	
 	public Express4J(String root) throws DirectoryRequiredException {
 		if(!root.endsWith("/") && !root.endsWith("\\"))
@@ -41,8 +65,17 @@ public class Express4J {
 			throw new DirectoryRequiredException("Provided root path must be a directory!");
 		this.root = root;
 		
-		this.listeners = new HashMap<Method, HashMap<String,Request>>();
+		this.router = new Router();
 		this.error_documents = new HashMap<Integer, File>();
+		this.mounts = new ArrayList<StaticMount>();
+		this.staticCache = new StaticCache();
+		this.compression = new CompressionSettings();
+		this.templates = new TemplateEngine(directory);
+		this.maxBodySize = 10L << 20;
+		this.form = new FormSettings();
+		this.gson = new Gson();
+		this.metrics = new MetricsRegistry();
+		this.log = new RequestLog();
 		
 		this.handler = new RequestHandler(this);
 	}
@@ -67,6 +100,21 @@ public class Express4J {
 	 * @throws DirectoryRequiredException
 	 */
 	public Express4J addStatic(String path, String dir) throws DirectoryRequiredException {
+		return this.addStatic(path, dir, false);
+	}
+	
+	/**
+	 * Makes all files in a provided directory available via the web server
+	 * Files are looked up when they are requested, so files added later are served without a restart.
+	 * When <code>watch</code> is <code>true</code> the directory is indexed and watched for changes, so requests for missing files never touch the disk.
+	 *
+	 * @param path
+	 * @param dir
+	 * @param watch
+	 * @return
+	 * @throws DirectoryRequiredException
+	 */
+	public Express4J addStatic(String path, String dir, boolean watch) throws DirectoryRequiredException {
 		if(!dir.startsWith(this.root))
 			dir = this.root + dir;
 		File directory = new File(cleanPath(dir));
@@ -75,15 +123,13 @@ public class Express4J {
 		if(!directory.isDirectory())
 			throw new DirectoryRequiredException();
 		
-		if(!path.endsWith("/")) path += "/";
-		for(File file : this.walk(directory)) {
-			String file_path = "/"+ cleanPath("\\"+ file.getPath()).replace(this.root, "").replace("\\", "/");
-			this.get(file_path.replace("//", "/"), new Request() {
-				@Override
-				public void handle(final HttpRequest req, final HttpResponse res) throws Exception {
-					res.sendFile(file.getPath());
-				}
-			});
+		if(!path.startsWith("/")) path = "/" + path;
+		try {
+			StaticMount mount = new StaticMount(this, path, directory, watch);
+			this.mounts.add(mount);
+			this.router.add(Method.GET, mount.getPath(), true, mount);
+		} catch(IOException e) {
+			throw new DirectoryRequiredException("Unable to watch " + directory.getPath() + ": " + e.getMessage());
 		}
 		return this;
 	}
@@ -100,6 +146,24 @@ public class Express4J {
 	 */
 	public void get(String path, Request handler) { this.registerListener(Method.GET, path, handler); }
 	
+	/**
+	 * Create a chain of middleware for GET requests at the given path (Also accepts Regex)
+	 * Each handler must call <code>Chain.next()</code> to pass the request on to the next one
+	 *
+	 * @param path
+	 * @param handlers
+	 */
+	public void get(String path, Middleware... handlers) { this.registerListener(Method.GET, path, handlers); }
+	
+	/**
+	 * Create an asynchronous listener for GET requests at the given path (Also accepts Regex)
+	 * The worker thread is released once the handler returns, the request continues when the returned stage completes.
+	 *
+	 * @param path
+	 * @param handler
+	 */
+	public void getAsync(String path, AsyncRequest handler) { this.registerAsyncListener(Method.GET, path, handler); }
+	
 	/**
 	 * Create a listener for POST requests at the given path (Also accepts Regex)
 	 * Requests are handled in the order they are added
@@ -112,6 +176,24 @@ public class Express4J {
 	 */
 	public void post(String path, Request handler) { this.registerListener(Method.POST, path, handler); }
 	
+	/**
+	 * Create a chain of middleware for POST requests at the given path (Also accepts Regex)
+	 * Each handler must call <code>Chain.next()</code> to pass the request on to the next one
+	 *
+	 * @param path
+	 * @param handlers
+	 */
+	public void post(String path, Middleware... handlers) { this.registerListener(Method.POST, path, handlers); }
+	
+	/**
+	 * Create an asynchronous listener for POST requests at the given path (Also accepts Regex)
+	 * The worker thread is released once the handler returns, the request continues when the returned stage completes.
+	 *
+	 * @param path
+	 * @param handler
+	 */
+	public void postAsync(String path, AsyncRequest handler) { this.registerAsyncListener(Method.POST, path, handler); }
+	
 	/**
 	 * Create a listener for PUT requests at the given path (Also accepts Regex)
 	 * Requests are handled in the order they are added
@@ -124,6 +206,24 @@ public class Express4J {
 	 */
 	public void put(String path, Request handler) { this.registerListener(Method.PUT, path, handler); }
 	
+	/**
+	 * Create a chain of middleware for PUT requests at the given path (Also accepts Regex)
+	 * Each handler must call <code>Chain.next()</code> to pass the request on to the next one
+	 *
+	 * @param path
+	 * @param handlers
+	 */
+	public void put(String path, Middleware... handlers) { this.registerListener(Method.PUT, path, handlers); }
+	
+	/**
+	 * Create an asynchronous listener for PUT requests at the given path (Also accepts Regex)
+	 * The worker thread is released once the handler returns, the request continues when the returned stage completes.
+	 *
+	 * @param path
+	 * @param handler
+	 */
+	public void putAsync(String path, AsyncRequest handler) { this.registerAsyncListener(Method.PUT, path, handler); }
+	
 	/**
 	 * Create a listener for DELETE requests at the given path (Also accepts Regex)
 	 * Requests are handled in the order they are added
@@ -136,6 +236,24 @@ public class Express4J {
 	 */
 	public void delete(String path, Request handler) { this.registerListener(Method.DELETE, path, handler); }
 	
+	/**
+	 * Create a chain of middleware for DELETE requests at the given path (Also accepts Regex)
+	 * Each handler must call <code>Chain.next()</code> to pass the request on to the next one
+	 *
+	 * @param path
+	 * @param handlers
+	 */
+	public void delete(String path, Middleware... handlers) { this.registerListener(Method.DELETE, path, handlers); }
+	
+	/**
+	 * Create an asynchronous listener for DELETE requests at the given path (Also accepts Regex)
+	 * The worker thread is released once the handler returns, the request continues when the returned stage completes.
+	 *
+	 * @param path
+	 * @param handler
+	 */
+	public void deleteAsync(String path, AsyncRequest handler) { this.registerAsyncListener(Method.DELETE, path, handler); }
+	
 	/**
 	 * Create a listener for ALL requests at the given path (Also accepts Regex)
 	 * Requests are handled in the order they are added
@@ -148,19 +266,45 @@ public class Express4J {
 	 */
 	public void all(String path, Request handler) { this.registerListener(Method.ALL, path, handler); }
 	
-	public void registerListener(Method method, String path, Request handler) {
-		if(method == Method.ALL) {
-			for(Method m : Method.values())
-				if(m != Method.ALL)
-					this.registerListener(m, path, handler);
-		} else {
-			if(!this.listeners.containsKey(method))
-				this.listeners.put(method, new HashMap<String, Request>());
-			if(this.listeners.get(method).containsKey(path))
-				this.listeners.get(method).remove(path);
-			this.listeners.get(method).put(path, handler);
-		}
-	}
+	/**
+	 * Create a chain of middleware for ALL requests at the given path (Also accepts Regex)
+	 * Each handler must call <code>Chain.next()</code> to pass the request on to the next one
+	 *
+	 * @param path
+	 * @param handlers
+	 */
+	public void all(String path, Middleware... handlers) { this.registerListener(Method.ALL, path, handlers); }
+	
+	/**
+	 * Create an asynchronous listener for ALL requests at the given path (Also accepts Regex)
+	 * The worker thread is released once the handler returns, the request continues when the returned stage completes.
+	 *
+	 * @param path
+	 * @param handler
+	 */
+	public void allAsync(String path, AsyncRequest handler) { this.registerAsyncListener(Method.ALL, path, handler); }
+	
+	/**
+	 * Mounts middleware that runs for every request, in the order it is added relative to other handlers
+	 *
+	 * @param handlers
+	 */
+	public void use(Middleware... handlers) { this.use("/", handlers); }
+	
+	/**
+	 * Mounts middleware that runs for every request to the given path or any path below it (Also accepts Regex)
+	 * Middleware is handled in the order it is added relative to other handlers.
+	 * </br></br>
+	 * Example: "/api" will accept "/api", "/api/" and "/api/users/1"
+	 *
+	 * @param path
+	 * @param handlers
+	 */
+	public void use(String path, Middleware... handlers) { this.router.add(Method.ALL, path, true, handlers); }
+	
+	public void registerListener(Method method, String path, Request handler) { this.registerListener(method, path, Route.wrap(handler)); }
+	public void registerListener(Method method, String path, Middleware... handlers) { this.router.add(method, path, false, handlers); }
+	public void registerAsyncListener(Method method, String path, AsyncRequest handler) { this.registerListener(method, path, Route.async(handler)); }
 	
 	/**
 	 * Allows you to assign an ErrorDocument to a status code (Must be inside the <code>Express.root</code> directory)
@@ -210,19 +354,72 @@ public class Express4J {
 	 * @throws IOException
 	 */
 	public void listen(int port, String hostname, int backlog) throws IOException {
+		ServerSettings settings = new ServerSettings();
+			settings.setBacklog(backlog);
+		this.listen(port, hostname, settings);
+	}
+	
+	/**
+	 * Starts the Express4J server on the provided port with the provided settings
+	 *
+	 * @param port
+	 * @param settings
+	 * @throws IOException
+	 */
+	public void listen(int port, ServerSettings settings) throws IOException { this.listen(port, "0.0.0.0", settings); }
+	
+	/**
+	 * Starts the Express4J server on the provided hostname and port with the provided settings
+	 *
+	 * The settings decide how many requests are queued by the socket, which transport serves them and which executor handles them
+	 * By default requests are handled on virtual threads when running on Java 21+, otherwise on a bounded pool of worker threads
+	 *
+	 * @param port
+	 * @param hostname
+	 * @param settings
+	 * @throws IOException
+	 */
+	public void listen(int port, String hostname, ServerSettings settings) throws IOException {
 		this.port = port;
 		this.address = new InetSocketAddress(hostname, port);
+		this.settings = settings;
 		
-		this.server = HttpServer.create(this.address, backlog);
-		this.server.createContext("/", this.handler);
-		this.server.setExecutor(null);
-		this.server.start();
+		this.executor = ThreadUtils.createExecutor(settings);
+		this.server = settings.getTransport().create();
+		this.server.start(this.address, settings, this.handler, this.executor);
 	}
 	
+	/**
+	 * Returns the executor handling requests, or <code>null</code> before <code>Express4J.listen()</code> or with <code>ExecutorType.DISPATCHER</code>
+	 *
+	 * @return
+	 */
+	public ExecutorService getExecutor() { return this.executor; }
+	
+	/**
+	 * Returns the transport serving requests, or <code>null</code> before <code>Express4J.listen()</code>
+	 *
+	 * @return
+	 */
+	public Transport getTransport() { return this.server; }
+	
 	/**
 	 * Kills the server
 	 */
-	public void stop() { this.server.stop(0); }
+	public void stop() {
+		this.server.stop();
+		if(this.executor != null)
+			this.executor.shutdown();
+		for(StaticMount mount : this.mounts)
+			try {
+				mount.close();
+			} catch(IOException e) {
+				if(this.log != null)
+					this.log.error("Could not close static mount", e);
+			}
+		if(this.log != null)
+			this.log.close();
+	}
 	
 	public static String cleanPath(String path) {
 		String seperator = "\\";
@@ -249,16 +446,4 @@ public class Express4J {
 		}
 		return path;
 	}
-	
-	private List<File> walk(File dir) {
-		List<File> files = new ArrayList<File>();
-		for(File file : dir.listFiles()) {
-			if(file.isFile())
-				files.add(file);
-			else if(file.isDirectory())
-				for(File file2 : this.walk(file))
-					files.add(file2);
-		}
-		return files;
-	}
 }
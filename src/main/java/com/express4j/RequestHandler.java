@@ -1,106 +1,158 @@
 package com.express4j;
 
 import com.express4j.exception.FileRequiredException;
+import com.express4j.exception.MalformedBodyException;
+import com.express4j.exception.PayloadTooLargeException;
 import com.express4j.exception.TraversalAttackPreventionException;
+import com.express4j.logging.RequestLog;
+import com.express4j.metrics.MetricsRegistry;
+import com.express4j.metrics.RouteMetrics;
+import com.express4j.routing.RouteChain;
+import com.express4j.routing.RouteMatch;
 import com.express4j.service.HttpRequest;
 import com.express4j.service.HttpResponse;
-import com.sun.net.httpserver.HttpExchange;
-import com.sun.net.httpserver.HttpHandler;
+import com.express4j.service.obj.ContentType;
+import com.express4j.service.obj.Method;
+import com.express4j.template.Template;
+import com.express4j.transport.Exchange;
+import com.express4j.transport.ExchangeHandler;
 
-import java.io.*;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.HashMap;
-import java.util.Set;
-import java.util.stream.Collectors;
 
-public class RequestHandler implements HttpHandler {
+public class RequestHandler implements ExchangeHandler {
 	private Express4J app;
 	
 	public RequestHandler(Express4J app) {
 		this.app = app;
 	}
 	
-	public void handle(HttpExchange exchange) {
-		HttpRequest req = new HttpRequest(this.app, exchange);
-		HttpResponse res = new HttpResponse(this.app, exchange, req);
+	public void handle(Exchange exchange) {
+		if(Method.fromString(exchange.getRequestMethod()) == null) {
+			// Routing, error documents and the access log all need a known method
+			try {
+				exchange.sendResponseHeaders(501, -1);
+			} catch(IOException e) {}
+			exchange.close();
+			return;
+		}
+		final HttpRequest req = new HttpRequest(this.app, exchange);
+		final HttpResponse res = new HttpResponse(this.app, exchange, req);
+		final long start = System.nanoTime();
 		
-		boolean found = false;
-		Set<String> keys = this.app.listeners.get(req.getMethod()).keySet().stream().filter(s -> (s.chars().filter(num -> num == '/').count() == req.getPath().chars().filter(num -> num == '/').count())).collect(Collectors.toSet());
-		for(String path : keys) {
-			String parsed_path = Express4J.parsePath(path);
-			if(req.getPath().equals(parsed_path) || req.getPath().matches(parsed_path)) {
-				try {
-					if(!path.equals(parsed_path))
-						req.params = toParams(path, req.getPath());
-					this.app.listeners.get(req.getMethod()).get(path).handle(req, res);
-					found = true;
-				} catch(FileNotFoundException | FileRequiredException e) {
+		RouteChain chain;
+		final RouteMetrics metrics;
+		try {
+			RouteMatch[] matches = this.app.router.match(req.getMethod(), req.getPath());
+			MetricsRegistry registry = this.app.getMetrics();
+			metrics = registry != null ? registry.get(req.getMethod().toString(), matches) : null;
+			chain = new RouteChain(matches, req, res);
+		} catch(Exception e) {
+			this.finish(req, res, e, null, start);
+			return;
+		}
+		if(metrics != null)
+			metrics.begin();
+		chain.start(new RouteChain.Listener() {
+			@Override
+			public void finish(Throwable error) {
+				RequestHandler.this.finish(req, res, error, metrics, start);
+			}
+		});
+	}
+	
+	/**
+	 * Ends a request once its chain is done, answering with the error document matching the error that ended it
+	 * Called on the thread that ran the last handler, which is not the worker thread when a handler suspended the chain.
+	 * A response already committed when the error struck is aborted, so neither the client nor middleware recording it take it as complete.
+	 *
+	 * @param req
+	 * @param res
+	 * @param error
+	 * @param metrics the route's metrics, or <code>null</code>
+	 * @param start when the request started, in <code>System.nanoTime()</code>
+	 */
+	private void finish(HttpRequest req, HttpResponse res, Throwable error, RouteMetrics metrics, long start) {
+		boolean aborted = error != null && res.isCommitted();
+		try {
+			if(aborted) {
+				res.getExchange().abort();
+				this.logError(req, error);
+			} else if(error == null) {
+				if(res.isOpen())
 					this.sendErrorDocument(404, req, res);
-					e.printStackTrace();
-				} catch(TraversalAttackPreventionException e) {
-					this.sendErrorDocument(403, req, res);
-					e.printStackTrace();
-				} catch(Exception e) {
-					this.sendErrorDocument(500, req, res);
-					e.printStackTrace();
-				}
-				if(res.isClosed())
-					break;
+			} else if(error instanceof FileNotFoundException || error instanceof FileRequiredException) {
+				this.sendErrorDocument(404, req, res);
+				this.logError(req, error);
+			} else if(error instanceof TraversalAttackPreventionException) {
+				this.sendErrorDocument(403, req, res);
+				this.logError(req, error);
+			} else if(error instanceof PayloadTooLargeException) {
+				this.sendErrorDocument(413, req, res);
+			} else if(error instanceof MalformedBodyException) {
+				this.sendErrorDocument(400, req, res);
+			} else {
+				this.sendErrorDocument(500, req, res);
+				this.logError(req, error);
 			}
+		} finally {
+			try {
+				res.close();
+			} catch(IOException e) {
+				// The rest of an aborted response has nowhere to go
+				if(!aborted)
+					this.logError(req, e);
+			}
+			req.close();
+			
+			long nanos = System.nanoTime() - start;
+			if(metrics != null)
+				metrics.end(res.getStatus(), nanos, error != null);
+			RequestLog log = this.app.getLog();
+			if(log != null)
+				log.access(req, res, nanos);
 		}
-		if(!found)
-			this.sendErrorDocument(404, req, res);
+	}
+	
+	public void error(String message, Throwable error) {
+		RequestLog log = this.app.getLog();
+		if(log != null)
+			log.error(message, error);
 	}
 	
 	public void sendErrorDocument(int status, HttpRequest req, HttpResponse res) {
+		if(res.isCommitted())
+			return;
 		try {
-			InputStream in;
-			File file = this.app.error_documents.getOrDefault(status, null);
-			if(file == null) in = getClass().getResourceAsStream("/default_error_pages/" + status + ".html");
-			else in = new FileInputStream(file);
-			
-			BufferedReader br = null;
-			StringBuilder sb = new StringBuilder();
-			String line;
-			try {
-				br = new BufferedReader(new InputStreamReader(in));
-				while((line = br.readLine()) != null)
-					sb.append(line);
-			} catch(IOException ex) {
-				ex.printStackTrace();
-			} finally {
-				if(br != null)
-					try {
-						br.close();
-						in.close();
-					} catch(IOException ex) {
-						ex.printStackTrace();
-					}
-			}
+			Template template = null;
+			File file = this.app.error_documents.get(status);
+			if(file != null)
+				try {
+					template = this.app.getTemplates().get(file);
+				} catch(FileNotFoundException e) {
+					this.logError(req, e);
+				}
+			if(template == null)
+				template = this.app.getTemplates().resource("/default_error_pages/" + status + ".html");
+			if(template == null)
+				template = this.app.getTemplates().resource("/default_error_pages/-1.html");
 			
-			String body = sb.toString();
-				body = body.replaceAll("\\{REQ.METHOD\\}", req.getMethod().toString());
-				body = body.replaceAll("\\{REQ.PATH\\}", req.getPath());
-				body = body.replaceAll("\\{REQ.HOST\\}", req.getHostname());
-				body = body.replaceAll("\\{REQ.IP\\}", req.getIP());
-			res.send(body);
-		} catch(FileNotFoundException e) {
-			e.printStackTrace();
+			HashMap<String, String> model = new HashMap<String, String>();
+				model.put("REQ.METHOD", req.getMethod().toString());
+				model.put("REQ.PATH", req.getPath());
+				model.put("REQ.HOST", req.getHostname());
+				model.put("REQ.IP", req.getIP());
+			res.status(status).type(ContentType.HTML).render(template, model);
 		} catch(IOException e) {
-			e.printStackTrace();
+			this.logError(req, e);
 		}
 	}
 	
-	private HashMap<String, String> toParams(String raw, String path) { return this.toParams(raw, path, new HashMap<String, String>()); }
-	private HashMap<String, String> toParams(String raw, String path, HashMap<String, String> map) {
-		String[] raw_parts = raw.split("/");
-		String[] path_parts = path.split("/");
-		for(int i = 0; i < raw_parts.length; i++) {
-			String raw_part = raw_parts[i];
-			String path_part = path_parts[i];
-			if(!raw_part.isEmpty())
-				if(raw_part.startsWith(":"))
-					map.put(raw_part.replaceFirst(":", ""), path_part);
-		}
-		return map;
+	private void logError(HttpRequest req, Throwable error) {
+		RequestLog log = this.app.getLog();
+		if(log != null)
+			log.error(req, error);
 	}
 }
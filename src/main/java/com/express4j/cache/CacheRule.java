@@ -0,0 +1,185 @@
+package com.express4j.cache;
+
+import com.express4j.events.Chain;
+import com.express4j.events.Middleware;
+import com.express4j.service.HttpRequest;
+import com.express4j.service.HttpResponse;
+import com.express4j.service.obj.Method;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Middleware caching the GET responses of the routes it is added to, created by <code>ResponseCache.route()</code>
+ * Responses are keyed on their path, the selected query parameters and the request headers they vary on.
+ * Only 200 responses are stored, and never those setting cookies or marked <code>no-store</code> or <code>private</code>.
+ * Example: <code>app.get("/products/:id", cache.route(60000).query("lang").tag("products"), Route.wrap(handler))</code>
+ */
+public class CacheRule implements Middleware {
+	private final ResponseCache cache;
+	@Getter private final long ttl;
+	private String[] query = null;
+	private volatile String[] vary = new String[0];
+	@Getter private Set<String> tags = new LinkedHashSet<String>();
+	
+	CacheRule(ResponseCache cache, long ttl) {
+		this.cache = cache;
+		this.ttl = ttl;
+	}
+	
+	/**
+	 * Keys responses on the provided query parameters only, instead of the whole query string
+	 *
+	 * @param names
+	 * @return
+	 */
+	public CacheRule query(String... names) {
+		String[] query = names.clone();
+		Arrays.sort(query);
+		this.query = query;
+		return this;
+	}
+	
+	/**
+	 * Keys responses on the provided request headers
+	 * Headers named by the Vary header of a response are added automatically.
+	 *
+	 * @param headers
+	 * @return
+	 */
+	public CacheRule vary(String... headers) {
+		for(String header : headers)
+			this.addVary(header);
+		return this;
+	}
+	
+	/**
+	 * Tags every response stored by this rule, for <code>ResponseCache.invalidateTag()</code>
+	 *
+	 * @param tags
+	 * @return
+	 */
+	public CacheRule tag(String... tags) {
+		this.tags.addAll(Arrays.asList(tags));
+		return this;
+	}
+	
+	/**
+	 * Removes every response stored by this rule
+	 */
+	public void invalidate() {
+		this.cache.invalidate(this);
+	}
+	
+	@Override
+	public void handle(final HttpRequest req, HttpResponse res, Chain chain) throws Exception {
+		if(req.getMethod() != Method.GET || !req.get("Authorization").isEmpty()) {
+			chain.next();
+			return;
+		}
+		final String path = req.getPath();
+		final String key = this.key(req, path);
+		CachedResponse cached = this.cache.get(key);
+		if(cached != null) {
+			res.set("Age", Long.toString(Math.max(0, (System.currentTimeMillis() - cached.getCreated()) / 1000)));
+			cached.send(res);
+			return;
+		}
+		
+		final String[] vary = this.vary;
+		RecordingExchange recording = new RecordingExchange(res.getExchange(), this.cache.getMaxEntrySize(), new RecordingExchange.Listener() {
+			@Override
+			public void recorded(int status, Map<String, List<String>> headers, byte[] body) {
+				CacheRule.this.store(req, path, key, vary, status, headers, body);
+			}
+		});
+		res.wrap(recording);
+		try {
+			chain.next();
+		} catch(Exception e) {
+			recording.discard();
+			throw e;
+		}
+	}
+	
+	private void store(HttpRequest req, String path, String key, String[] vary, int status, Map<String, List<String>> headers, byte[] body) {
+		if(body == null || status != 200 || headers.containsKey("Set-Cookie"))
+			return;
+		List<String> control = headers.get("Cache-Control");
+		if(control != null)
+			for(String value : control) {
+				String lower = value.toLowerCase(Locale.ROOT);
+				if(lower.contains("no-store") || lower.contains("private") || lower.contains("no-cache"))
+					return;
+			}
+		List<String> varies = headers.get("Vary");
+		boolean learned = false;
+		if(varies != null)
+			for(String value : varies)
+				for(String name : value.split(","))
+					if(!name.trim().isEmpty()) {
+						if(name.trim().equals("*"))
+							return;
+						learned |= this.addVary(name.trim());
+					}
+		// The key was built before the response named new headers to vary on, key it again with them
+		if(learned || vary != this.vary)
+			key = this.key(req, path);
+		this.cache.put(new CachedResponse(key, path, this, status, headers, body, this.ttl));
+	}
+	
+	private synchronized boolean addVary(String header) {
+		for(String name : this.vary)
+			if(name.equalsIgnoreCase(header))
+				return false;
+		String[] vary = Arrays.copyOf(this.vary, this.vary.length + 1);
+		vary[vary.length - 1] = header;
+		this.vary = vary;
+		return true;
+	}
+	
+	private String key(HttpRequest req, String path) { return key(req, path, this.query, this.vary); }
+	
+	/**
+	 * Builds the key of a request from its path, query parameters and headers
+	 * Every part is prefixed with its length, so no value can be crafted to read as another parameter or header.
+	 *
+	 * @param req
+	 * @param path
+	 * @param query the query parameters to key on, sorted, or <code>null</code> for the whole query string
+	 * @param vary the request headers to key on
+	 * @return
+	 */
+	static String key(HttpRequest req, String path, String[] query, String[] vary) {
+		StringBuilder sb = new StringBuilder(path.length() + 64);
+		field(sb, path).append('?');
+		if(query == null) {
+			String url = req.getOriginalURL();
+			int start = url.indexOf('?');
+			field(sb, start >= 0 ? url.substring(start + 1) : "");
+		} else
+			for(String name : query) {
+				List<String> values = req.getQueryAll(name);
+				if(values != null)
+					for(String value : values)
+						field(field(sb, name).append('='), value).append('&');
+			}
+		for(String name : vary) {
+			field(sb.append('\n'), name).append(':');
+			List<String> values = req.get(name);
+			if(values != null)
+				for(String value : values)
+					field(sb, value).append(',');
+		}
+		return sb.toString();
+	}
+	
+	private static StringBuilder field(StringBuilder sb, String value) {
+		return sb.append(value.length()).append('#').append(value);
+	}
+}
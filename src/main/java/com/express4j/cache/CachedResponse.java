@@ -0,0 +1,61 @@
+package com.express4j.cache;
+
+import com.express4j.service.HttpResponse;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A response held by a <code>ResponseCache</code>, with its body exactly as it was sent
+ */
+public class CachedResponse {
+	@Getter private final String key;
+	@Getter private final String path;
+	@Getter private final int status;
+	@Getter private final Map<String, List<String>> headers;
+	@Getter private final byte[] body;
+	@Getter private final long created;
+	@Getter private final long expires;
+	final CacheRule rule;
+	volatile boolean referenced = true;
+	
+	CachedResponse(String key, String path, CacheRule rule, int status, Map<String, List<String>> headers, byte[] body, long ttl) {
+		this.key = key;
+		this.path = path;
+		this.rule = rule;
+		this.status = status;
+		this.headers = headers;
+		this.body = body;
+		this.created = System.currentTimeMillis();
+		this.expires = this.created + ttl;
+	}
+	
+	/**
+	 * Returns the memory the response is accounted for, its body plus a rough estimate of its headers
+	 *
+	 * @return
+	 */
+	public long getSize() { return this.body.length + 64L * (this.headers.size() + 1); }
+	
+	/**
+	 * Sends the stored response, its headers included
+	 *
+	 * @param res
+	 * @throws IOException
+	 */
+	public void send(HttpResponse res) throws IOException {
+		for(Map.Entry<String, List<String>> header : this.headers.entrySet())
+			res.set(header.getKey(), header.getValue());
+		res.status(this.status).sendEncoded(this.body);
+	}
+	
+	/**
+	 * Returns <code>true</code> once the response has outlived its time to live
+	 *
+	 * @param now the current time in milliseconds
+	 * @return
+	 */
+	public boolean isExpired(long now) { return now >= this.expires; }
+}
@@ -0,0 +1,152 @@
+package com.express4j.cache;
+
+import com.express4j.transport.Exchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Passes an exchange through while keeping a copy of the response, handed to a listener once the response is complete
+ * The listener gets a <code>null</code> body if the body grew past the limit or the recording was discarded.
+ */
+class RecordingExchange implements Exchange {
+	interface Listener {
+		/**
+		 * Called once when the response is complete
+		 *
+		 * @param status the status sent, or -1 if the response was closed without one
+		 * @param headers the headers sent, or <code>null</code> if the response was closed without any
+		 * @param body the body sent, or <code>null</code> if it was not recorded
+		 */
+		void recorded(int status, Map<String, List<String>> headers, byte[] body);
+	}
+	
+	private final Exchange exchange;
+	private final long limit;
+	private final Listener listener;
+	private ByteArrayOutputStream body = new ByteArrayOutputStream();
+	private Map<String, List<String>> headers;
+	private OutputStream stream;
+	private boolean done = false;
+	
+	RecordingExchange(Exchange exchange, long limit, Listener listener) {
+		this.exchange = exchange;
+		this.limit = limit;
+		this.listener = listener;
+	}
+	
+	@Override
+	public String getRequestMethod() { return this.exchange.getRequestMethod(); }
+	@Override
+	public String getRequestURI() { return this.exchange.getRequestURI(); }
+	@Override
+	public String getProtocol() { return this.exchange.getProtocol(); }
+	@Override
+	public InetSocketAddress getRemoteAddress() { return this.exchange.getRemoteAddress(); }
+	@Override
+	public InetSocketAddress getLocalAddress() { return this.exchange.getLocalAddress(); }
+	@Override
+	public Map<String, List<String>> getRequestHeaders() { return this.exchange.getRequestHeaders(); }
+	@Override
+	public InputStream getRequestBody() { return this.exchange.getRequestBody(); }
+	@Override
+	public Map<String, List<String>> getResponseHeaders() { return this.exchange.getResponseHeaders(); }
+	@Override
+	public int getResponseCode() { return this.exchange.getResponseCode(); }
+	
+	@Override
+	public void sendResponseHeaders(int status, long length) throws IOException {
+		TreeMap<String, List<String>> headers = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+		for(Map.Entry<String, List<String>> header : this.exchange.getResponseHeaders().entrySet())
+			if(!header.getKey().equalsIgnoreCase("Content-Length") && !header.getKey().equalsIgnoreCase("Transfer-Encoding") && !header.getKey().equalsIgnoreCase("Connection") && !header.getKey().equalsIgnoreCase("Date"))
+				headers.put(header.getKey(), new ArrayList<String>(header.getValue()));
+		this.headers = headers;
+		if(length > this.limit)
+			this.body = null;
+		this.exchange.sendResponseHeaders(status, length);
+	}
+	
+	@Override
+	public OutputStream getResponseBody() {
+		if(this.stream == null) {
+			final OutputStream os = this.exchange.getResponseBody();
+			this.stream = new OutputStream() {
+				@Override
+				public void write(int b) throws IOException {
+					os.write(b);
+					RecordingExchange.this.record(new byte[] { (byte) b }, 0, 1);
+				}
+				
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					os.write(b, off, len);
+					RecordingExchange.this.record(b, off, len);
+				}
+				
+				@Override
+				public void flush() throws IOException {
+					os.flush();
+				}
+				
+				@Override
+				public void close() throws IOException {
+					try {
+						os.close();
+					} finally {
+						RecordingExchange.this.finish();
+					}
+				}
+			};
+		}
+		return this.stream;
+	}
+	
+	@Override
+	public void close() {
+		try {
+			this.exchange.close();
+		} finally {
+			this.finish();
+		}
+	}
+	
+	@Override
+	public void abort() {
+		this.discard();
+		try {
+			this.exchange.abort();
+		} finally {
+			this.finish();
+		}
+	}
+	
+	/**
+	 * Stops recording, the response will not reach the listener
+	 */
+	void discard() {
+		this.body = null;
+	}
+	
+	private void record(byte[] b, int off, int len) {
+		if(this.body == null)
+			return;
+		if(this.body.size() + len > this.limit)
+			this.body = null;
+		else
+			this.body.write(b, off, len);
+	}
+	
+	private void finish() {
+		if(this.done)
+			return;
+		this.done = true;
+		this.listener.recorded(this.exchange.getResponseCode(), this.headers, this.headers != null && this.body != null ? this.body.toByteArray() : null);
+	}
+}
@@ -0,0 +1,166 @@
+package com.express4j.cache;
+
+import lombok.Getter;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps fully encoded responses of dynamic GET routes in memory, so repeated requests skip their handlers
+ * Routes opt in by adding the middleware returned by <code>ResponseCache.route()</code>.
+ * Stored responses are bounded by a byte budget, evicted with a clock sweep approximating least recently used.
+ * The sweep gives every response read since it last went by a second chance and drops expired ones on the way.
+ */
+public class ResponseCache {
+	@Getter private long maxBytes;
+	@Getter private long maxEntrySize;
+	
+	private ConcurrentHashMap<String, CachedResponse> entries;
+	private AtomicLong size;
+	private LongAdder hits;
+	private LongAdder misses;
+	private Iterator<CachedResponse> hand;
+	
+	/**
+	 * Creates a cache holding up to 32MB of responses no larger than 1MB each
+	 */
+	public ResponseCache() { this(32L << 20, 1L << 20); }
+	
+	/**
+	 * Creates a cache with the provided limits
+	 *
+	 * @param maxBytes The total size of the responses held in memory
+	 * @param maxEntrySize The largest response body that will be stored
+	 */
+	public ResponseCache(long maxBytes, long maxEntrySize) {
+		this.maxBytes = maxBytes;
+		this.maxEntrySize = Math.min(maxEntrySize, maxBytes);
+		
+		this.entries = new ConcurrentHashMap<String, CachedResponse>();
+		this.size = new AtomicLong();
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+	}
+	
+	/**
+	 * Returns middleware caching the responses of the routes it is added to for the provided time
+	 *
+	 * @param ttl How long in milliseconds a response is served from the cache
+	 * @return
+	 */
+	public CacheRule route(long ttl) {
+		return new CacheRule(this, ttl);
+	}
+	
+	/**
+	 * Returns the response stored under a key, or <code>null</code> if there is none or it expired
+	 *
+	 * @param key
+	 * @return
+	 */
+	CachedResponse get(String key) {
+		CachedResponse cached = this.entries.get(key);
+		if(cached != null && cached.isExpired(System.currentTimeMillis())) {
+			this.remove(cached);
+			cached = null;
+		}
+		if(cached == null) {
+			this.misses.increment();
+			return null;
+		}
+		if(!cached.referenced)
+			cached.referenced = true;
+		this.hits.increment();
+		return cached;
+	}
+	
+	void put(CachedResponse cached) {
+		if(cached.getBody().length > this.maxEntrySize)
+			return;
+		CachedResponse replaced = this.entries.put(cached.getKey(), cached);
+		long delta = cached.getSize() - (replaced != null ? replaced.getSize() : 0);
+		if(this.size.addAndGet(delta) > this.maxBytes)
+			this.evict();
+	}
+	
+	/**
+	 * Removes every response stored for a path, whatever its query string or varying headers
+	 *
+	 * @param path
+	 */
+	public void invalidatePath(String path) {
+		for(CachedResponse cached : this.entries.values())
+			if(cached.getPath().equals(path))
+				this.remove(cached);
+	}
+	
+	/**
+	 * Removes every response stored by rules carrying the provided tag
+	 *
+	 * @param tag
+	 */
+	public void invalidateTag(String tag) {
+		for(CachedResponse cached : this.entries.values())
+			if(cached.rule.getTags().contains(tag))
+				this.remove(cached);
+	}
+	
+	/**
+	 * Removes every response stored by a rule
+	 *
+	 * @param rule
+	 */
+	public void invalidate(CacheRule rule) {
+		for(CachedResponse cached : this.entries.values())
+			if(cached.rule == rule)
+				this.remove(cached);
+	}
+	
+	/**
+	 * Removes every stored response
+	 */
+	public void clear() {
+		for(CachedResponse cached : this.entries.values())
+			this.remove(cached);
+	}
+	
+	/**
+	 * Returns the memory used by stored responses in bytes
+	 *
+	 * @return
+	 */
+	public long size() { return this.size.get(); }
+	
+	/**
+	 * Returns how many responses are stored
+	 *
+	 * @return
+	 */
+	public int count() { return this.entries.size(); }
+	
+	public long getHits() { return this.hits.sum(); }
+	public long getMisses() { return this.misses.sum(); }
+	
+	private void remove(CachedResponse cached) {
+		if(this.entries.remove(cached.getKey(), cached))
+			this.size.addAndGet(-cached.getSize());
+	}
+	
+	private synchronized void evict() {
+		long now = System.currentTimeMillis();
+		while(this.size.get() > this.maxBytes && !this.entries.isEmpty()) {
+			// The hand walks the map, it is weakly consistent so entries added or removed meanwhile are fine
+			if(this.hand == null || !this.hand.hasNext())
+				this.hand = this.entries.values().iterator();
+			if(!this.hand.hasNext())
+				return;
+			CachedResponse cached = this.hand.next();
+			if(cached.referenced && !cached.isExpired(now))
+				cached.referenced = false;
+			else
+				this.remove(cached);
+		}
+	}
+}
@@ -0,0 +1,295 @@
+package com.express4j.cache;
+
+import com.express4j.Express4J;
+import com.express4j.events.Chain;
+import com.express4j.events.Middleware;
+import com.express4j.service.HttpRequest;
+import com.express4j.service.HttpResponse;
+import com.express4j.service.obj.Method;
+import com.express4j.utils.ThreadUtils;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Middleware coalescing concurrent identical GET and HEAD requests into a single run of the routes behind it
+ * The first request runs the chain while its response is recorded, requests with the same key arriving meanwhile wait for it without holding a thread and receive a copy.
+ * Requests are keyed on their method, path, the selected query parameters and request headers, just like <code>CacheRule</code>, and always on Accept-Encoding.
+ * A follower only receives the response if it sent the same values as the first request for every header named by the response's Vary header.
+ * Only 200 responses are shared, and never those setting cookies or marked <code>private</code>. Followers run the chain themselves when the first request fails,
+ * sends a body larger than <code>maxSize</code> or takes longer than <code>timeout</code>.
+ * Range and conditional requests are never coalesced, their partial or empty responses are not what other clients asked for.
+ * Followers resume on the app's executor once it is listening, never on the leader's thread or the timer.
+ * Example: <code>app.get("/report", cache.route(5000), new SingleFlight(app), Route.wrap(handler))</code>
+ */
+public class SingleFlight implements Middleware {
+	private static final ScheduledThreadPoolExecutor TIMER = timer();
+	private static final String[] UNSHARED = { "Range", "If-Range", "If-None-Match", "If-Modified-Since", "If-Match", "If-Unmodified-Since" };
+	private static final ExecutorService FOLLOWERS = Executors.newCachedThreadPool(ThreadUtils.namedFactory("Express4J-flight"));
+	
+	private final Express4J app;
+	@Getter private long timeout;
+	@Getter private long maxSize;
+	private String[] query = null;
+	private String[] vary = { "Accept-Encoding" };
+	
+	private final ConcurrentHashMap<String, Flight> flights = new ConcurrentHashMap<String, Flight>();
+	private final LongAdder coalesced = new LongAdder();
+	
+	/**
+	 * Creates a coalescer sharing responses of up to 1MB, followers waiting up to 30 seconds
+	 * Followers resume on a shared pool, prefer <code>new SingleFlight(app)</code> to resume them on the app's executor.
+	 */
+	public SingleFlight() { this(null, 30000, 1L << 20); }
+	
+	/**
+	 * Creates a coalescer sharing responses of up to 1MB, followers waiting up to 30 seconds and resuming on the app's executor
+	 *
+	 * @param app
+	 */
+	public SingleFlight(Express4J app) { this(app, 30000, 1L << 20); }
+	
+	/**
+	 * Creates a coalescer with the provided limits
+	 *
+	 * @param timeout How long in milliseconds followers wait for the first request before running the chain themselves
+	 * @param maxSize The largest response body that will be shared
+	 */
+	public SingleFlight(long timeout, long maxSize) { this(null, timeout, maxSize); }
+	
+	/**
+	 * Creates a coalescer with the provided limits, followers resuming on the app's executor
+	 * Followers resume on a shared pool when the app has no executor, as with <code>ExecutorType.DISPATCHER</code>.
+	 *
+	 * @param app
+	 * @param timeout How long in milliseconds followers wait for the first request before running the chain themselves
+	 * @param maxSize The largest response body that will be shared
+	 */
+	public SingleFlight(Express4J app, long timeout, long maxSize) {
+		this.app = app;
+		this.timeout = timeout;
+		this.maxSize = maxSize;
+	}
+	
+	/**
+	 * Keys requests on the provided query parameters only, instead of the whole query string
+	 *
+	 * @param names
+	 * @return
+	 */
+	public SingleFlight query(String... names) {
+		String[] query = names.clone();
+		Arrays.sort(query);
+		this.query = query;
+		return this;
+	}
+	
+	/**
+	 * Keys requests on the provided request headers, for responses that depend on them
+	 * Accept-Encoding is always part of the key, as responses are compressed for the encodings the client accepts.
+	 *
+	 * @param headers
+	 * @return
+	 */
+	public SingleFlight vary(String... headers) {
+		String[] vary = Arrays.copyOf(headers, headers.length + 1);
+		vary[headers.length] = "Accept-Encoding";
+		this.vary = vary;
+		return this;
+	}
+	
+	/**
+	 * Returns how many requests were answered with another request's response
+	 *
+	 * @return
+	 */
+	public long getCoalesced() { return this.coalesced.sum(); }
+	
+	/**
+	 * Returns how many distinct requests are currently running
+	 *
+	 * @return
+	 */
+	public int getInFlight() { return this.flights.size(); }
+	
+	@Override
+	public void handle(final HttpRequest req, final HttpResponse res, Chain chain) throws Exception {
+		if((req.getMethod() != Method.GET && req.getMethod() != Method.HEAD) || !req.get("Authorization").isEmpty() || isConditional(req)) {
+			chain.next();
+			return;
+		}
+		final String key = req.getMethod() + " " + CacheRule.key(req, req.getPath(), this.query, this.vary);
+		final Flight flight = new Flight(key);
+		final Flight leader = this.flights.putIfAbsent(key, flight);
+		if(leader != null) {
+			leader.join();
+			// Resume elsewhere so neither the leader closing its response nor the timer runs the followers' chains
+			chain.await(leader.response.thenAcceptAsync(new Consumer<CachedResponse>() {
+				@Override
+				public void accept(CachedResponse shared) {
+					if(shared == null || !leader.matches(req))
+						return;
+					try {
+						SingleFlight.this.coalesced.increment();
+						shared.send(res);
+					} catch(IOException e) {
+						throw new CompletionException(e);
+					}
+				}
+			}, this.executor()));
+			return;
+		}
+		
+		RecordingExchange recording = new RecordingExchange(res.getExchange(), this.maxSize, new RecordingExchange.Listener() {
+			@Override
+			public void recorded(int status, Map<String, List<String>> headers, byte[] body) {
+				if(status == 200 && body != null && shareable(headers))
+					flight.varied = varied(req, headers);
+				SingleFlight.this.land(flight, flight.varied != null ? new CachedResponse(key, null, null, status, headers, body, 0) : null);
+			}
+		});
+		res.wrap(recording);
+		try {
+			chain.next();
+		} catch(Exception e) {
+			this.land(flight, null);
+			throw e;
+		}
+	}
+	
+	/**
+	 * Ends a flight, requests arriving from now on start a new one
+	 *
+	 * @param flight
+	 * @param response the response to share, or <code>null</code> to have followers run the chain themselves
+	 */
+	private void land(Flight flight, CachedResponse response) {
+		this.flights.remove(flight.key, flight);
+		flight.response.complete(response);
+		flight.cancelTimer();
+	}
+	
+	/**
+	 * Creates the timer ending flights that take too long
+	 * Cancelled timeouts are removed right away, as each holds on to its flight and the response it shared until it would have run.
+	 *
+	 * @return
+	 */
+	private static ScheduledThreadPoolExecutor timer() {
+		ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, ThreadUtils.namedFactory("Express4J-flight-timer"));
+		timer.setRemoveOnCancelPolicy(true);
+		return timer;
+	}
+	
+	private Executor executor() {
+		ExecutorService executor = this.app != null ? this.app.getExecutor() : null;
+		return executor != null ? executor : FOLLOWERS;
+	}
+	
+	/**
+	 * Returns the leader's values of every request header named by the response's Vary header
+	 *
+	 * @param req
+	 * @param headers
+	 * @return
+	 */
+	private static Map<String, List<String>> varied(HttpRequest req, Map<String, List<String>> headers) {
+		Map<String, List<String>> varied = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+		List<String> vary = headers.get("Vary");
+		if(vary != null)
+			for(String value : vary)
+				for(String name : value.split(","))
+					if(!name.trim().isEmpty())
+						varied.put(name.trim(), new ArrayList<String>(req.get(name.trim())));
+		return varied;
+	}
+	
+	private static boolean isConditional(HttpRequest req) {
+		for(String name : UNSHARED)
+			if(!req.get(name).isEmpty())
+				return true;
+		return false;
+	}
+	
+	private static boolean shareable(Map<String, List<String>> headers) {
+		if(headers.containsKey("Set-Cookie"))
+			return false;
+		List<String> vary = headers.get("Vary");
+		if(vary != null)
+			for(String value : vary)
+				if(value.trim().equals("*"))
+					return false;
+		List<String> control = headers.get("Cache-Control");
+		if(control != null)
+			for(String value : control)
+				if(value.toLowerCase(Locale.ROOT).contains("private"))
+					return false;
+		return true;
+	}
+	
+	private class Flight {
+		private final String key;
+		private final CompletableFuture<CachedResponse> response = new CompletableFuture<CachedResponse>();
+		private final AtomicBoolean timed = new AtomicBoolean();
+		private volatile Map<String, List<String>> varied;
+		private volatile ScheduledFuture<?> timer;
+		
+		Flight(String key) {
+			this.key = key;
+		}
+		
+		/**
+		 * Returns <code>true</code> if a follower sent the same values as the leader for every header the response varies on
+		 *
+		 * @param req
+		 * @return
+		 */
+		boolean matches(HttpRequest req) {
+			for(Map.Entry<String, List<String>> header : this.varied.entrySet())
+				if(!header.getValue().equals(req.get(header.getKey())))
+					return false;
+			return true;
+		}
+		
+		/**
+		 * Registers a follower, the first one starts the timer ending the flight if it takes too long
+		 */
+		void join() {
+			if(SingleFlight.this.timeout > 0 && !this.response.isDone() && this.timed.compareAndSet(false, true)) {
+				this.timer = TIMER.schedule(new Runnable() {
+					@Override
+					public void run() {
+						SingleFlight.this.land(Flight.this, null);
+					}
+				}, SingleFlight.this.timeout, TimeUnit.MILLISECONDS);
+				// The flight may have landed before the timer was stored
+				if(this.response.isDone())
+					this.cancelTimer();
+			}
+		}
+		
+		void cancelTimer() {
+			ScheduledFuture<?> timer = this.timer;
+			if(timer != null)
+				timer.cancel(false);
+		}
+	}
+}
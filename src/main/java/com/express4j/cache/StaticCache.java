@@ -0,0 +1,255 @@
+package com.express4j.cache;
+
+import com.express4j.exception.FileRequiredException;
+import com.express4j.utils.CompressionUtils;
+import lombok.Getter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the metadata of every file sent through <code>HttpResponse.sendFile()</code> and the contents of small files in memory.
+ * Cached contents are bounded by a byte budget and the metadata by a number of files, the least recently used files are evicted first.
+ * Files are only checked on disk again once <code>revalidateAfter</code> milliseconds have passed since the last check.
+ */
+public class StaticCache {
+	private static final int MAX_FILES = 10000;
+	private static final int MAX_MISSING = 10000;
+	
+	@Getter private long maxBytes;
+	@Getter private long maxFileSize;
+	@Getter private boolean direct;
+	@Getter private long revalidateAfter;
+	
+	private LinkedHashMap<String, StaticFile> files;
+	private ConcurrentHashMap<String, Long> missing;
+	private AtomicLong size;
+	
+	/**
+	 * Creates a cache holding up to 64MB of files no larger than 1MB each, revalidated every second
+	 */
+	public StaticCache() { this(64L << 20, 1L << 20, false, 1000); }
+	
+	/**
+	 * Creates a cache with the provided limits
+	 *
+	 * @param maxBytes The total size of the file contents held in memory
+	 * @param maxFileSize The largest file that will be held in memory, never more than 2GB
+	 * @param direct Whether file contents are held off-heap in direct buffers
+	 * @param revalidateAfter How long in milliseconds a file is trusted before it is checked on disk again, 0 to trust it until invalidated
+	 */
+	public StaticCache(long maxBytes, long maxFileSize, boolean direct, long revalidateAfter) {
+		this.maxBytes = maxBytes;
+		this.maxFileSize = Math.min(Math.min(maxFileSize, maxBytes), Integer.MAX_VALUE);
+		this.direct = direct;
+		this.revalidateAfter = revalidateAfter;
+		
+		// Ordered by access, the eldest file is the least recently used one
+		this.files = new LinkedHashMap<String, StaticFile>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, StaticFile> eldest) {
+				if(this.size() <= MAX_FILES)
+					return false;
+				StaticCache.this.size.addAndGet(-eldest.getValue().getSize());
+				return true;
+			}
+		};
+		this.missing = new ConcurrentHashMap<String, Long>();
+		this.size = new AtomicLong();
+	}
+	
+	/**
+	 * Returns the cached entry for a file, loading it if it is missing or has changed on disk
+	 *
+	 * @param file
+	 * @return
+	 * @throws FileNotFoundException
+	 * @throws FileRequiredException
+	 * @throws IOException
+	 */
+	public StaticFile get(File file) throws FileNotFoundException, FileRequiredException, IOException {
+		StaticFile cached = this.find(file);
+		if(cached == null)
+			throw new FileNotFoundException(file.getPath());
+		return cached;
+	}
+	
+	/**
+	 * Returns the cached entry for a file, loading it if it is missing or has changed on disk.
+	 * Returns <code>null</code> if the file does not exist; missing files are remembered for the same time as existing ones.
+	 *
+	 * @param file
+	 * @return
+	 * @throws FileRequiredException
+	 * @throws IOException
+	 */
+	public StaticFile find(File file) throws FileRequiredException, IOException {
+		String key = file.getPath();
+		long now = System.nanoTime();
+		long expiry = TimeUnit.MILLISECONDS.toNanos(this.revalidateAfter);
+		StaticFile cached;
+		synchronized(this.files) {
+			cached = this.files.get(key);
+		}
+		if(cached != null) {
+			if(this.revalidateAfter <= 0 || now - cached.checked < expiry)
+				return cached;
+			if(file.lastModified() == cached.getLastModified() && file.length() == cached.getLength()) {
+				cached.checked = now;
+				return cached;
+			}
+		} else {
+			Long checked = this.missing.get(key);
+			if(checked != null && (this.revalidateAfter <= 0 || now - checked < expiry))
+				return null;
+		}
+		
+		if(!file.exists()) {
+			this.remove(key);
+			if(this.missing.size() >= MAX_MISSING)
+				this.missing.clear();
+			this.missing.put(key, now);
+			return null;
+		}
+		if(!file.isFile())
+			throw new FileRequiredException("You can not send a directory to the client.");
+		this.missing.remove(key);
+		StaticFile loaded = this.load(file);
+		synchronized(this.files) {
+			StaticFile previous = this.files.put(key, loaded);
+			this.resize(previous, loaded);
+		}
+		return loaded;
+	}
+	
+	/**
+	 * Returns the gzip compressed contents of a cached file, compressing them the first time they are requested
+	 * Returns <code>null</code> if the file contents are not held in memory. The buffer must not be written to.
+	 *
+	 * @param file
+	 * @param level
+	 * @return
+	 * @throws IOException
+	 */
+	public ByteBuffer gzip(StaticFile file, int level) throws IOException {
+		if(!file.isCached())
+			return null;
+		ByteBuffer gzip = file.gzip;
+		if(gzip == null) {
+			ByteBuffer content = file.getContent();
+			byte[] data = new byte[content.remaining()];
+			content.get(data);
+			byte[] compressed = CompressionUtils.compress(data, 0, data.length, CompressionUtils.GZIP, level);
+			gzip = this.direct ? ByteBuffer.allocateDirect(compressed.length) : ByteBuffer.allocate(compressed.length);
+			gzip.put(compressed).flip();
+			synchronized(this.files) {
+				if(file.gzip != null)
+					return file.gzip.duplicate();
+				file.gzip = gzip;
+				if(this.files.get(file.getFile().getPath()) == file)
+					this.resize(gzip.capacity());
+			}
+		}
+		return gzip.duplicate();
+	}
+	
+	/**
+	 * Removes a file from the cache
+	 *
+	 * @param file
+	 */
+	public void invalidate(File file) {
+		this.remove(file.getPath());
+		this.missing.remove(file.getPath());
+	}
+	
+	/**
+	 * Removes every file from the cache
+	 */
+	public void clear() {
+		synchronized(this.files) {
+			for(StaticFile file : this.files.values())
+				this.size.addAndGet(-file.getSize());
+			this.files.clear();
+		}
+		this.missing.clear();
+	}
+	
+	/**
+	 * Returns the total size of the file contents currently held in memory
+	 *
+	 * @return
+	 */
+	public long size() { return this.size.get(); }
+	
+	private StaticFile load(File file) throws IOException {
+		FileChannel channel = new FileInputStream(file).getChannel();
+		try {
+			long length = channel.size();
+			long modified = file.lastModified();
+			if(length > this.maxFileSize)
+				return new StaticFile(file, length, modified, "\"" + Long.toHexString(modified) + "-" + Long.toHexString(length) + "\"", null);
+			
+			ByteBuffer content = this.direct ? ByteBuffer.allocateDirect((int) length) : ByteBuffer.allocate((int) length);
+			while(content.hasRemaining())
+				if(channel.read(content, content.position()) < 0)
+					break;
+			content.flip();
+			return new StaticFile(file, content.remaining(), modified, etag(content.duplicate()), content);
+		} finally {
+			channel.close();
+		}
+	}
+	
+	private void remove(String key) {
+		synchronized(this.files) {
+			StaticFile removed = this.files.remove(key);
+			if(removed != null)
+				this.resize(-removed.getSize());
+		}
+	}
+	
+	private void resize(StaticFile removed, StaticFile added) {
+		this.resize((added != null ? added.getSize() : 0) - (removed != null ? removed.getSize() : 0));
+	}
+	
+	/**
+	 * Adds to the size of the cached contents and evicts the least recently used files while over budget, called with the lock on <code>files</code> held
+	 *
+	 * @param delta
+	 */
+	private void resize(long delta) {
+		if(delta == 0 || this.size.addAndGet(delta) <= this.maxBytes)
+			return;
+		for(Iterator<StaticFile> it = this.files.values().iterator(); it.hasNext() && this.size.get() > this.maxBytes; ) {
+			StaticFile eldest = it.next();
+			it.remove();
+			this.size.addAndGet(-eldest.getSize());
+		}
+	}
+	
+	private static String etag(ByteBuffer content) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("MD5");
+			digest.update(content);
+			StringBuilder sb = new StringBuilder("\"");
+			for(byte b : digest.digest())
+				sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			return sb.append('"').toString();
+		} catch(NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
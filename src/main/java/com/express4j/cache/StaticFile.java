@@ -0,0 +1,95 @@
+package com.express4j.cache;
+
+import com.express4j.utils.DateUtils;
+import lombok.Getter;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Date;
+
+public class StaticFile {
+	@Getter private File file;
+	@Getter private long length;
+	@Getter private long lastModified;
+	@Getter private String lastModifiedString;
+	@Getter private String etag;
+	private ByteBuffer content;
+	
+	volatile ByteBuffer gzip;
+	volatile long checked;
+	
+	StaticFile(File file, long length, long lastModified, String etag, ByteBuffer content) {
+		this.file = file;
+		this.length = length;
+		this.lastModified = lastModified;
+		this.lastModifiedString = DateUtils.toGMTString(new Date(lastModified));
+		this.etag = etag;
+		this.content = content;
+		this.checked = System.nanoTime();
+	}
+	
+	/**
+	 * Returns a view of the cached file contents, or <code>null</code> if the file is too large to be held in memory
+	 * The view shares its contents with the cache and must not be written to.
+	 *
+	 * @return
+	 */
+	public ByteBuffer getContent() {
+		return this.content != null ? this.content.duplicate() : null;
+	}
+	
+	/**
+	 * Returns the ETag of this file when sent with the provided Content-Encoding, so each encoding has its own validator
+	 *
+	 * @param encoding
+	 * @return
+	 */
+	public String getEtag(String encoding) {
+		if(encoding == null)
+			return this.etag;
+		return this.etag.substring(0, this.etag.length() - 1) + "-" + encoding + "\"";
+	}
+	
+	/**
+	 * Returns the number of bytes this file holds in memory, including its compressed contents
+	 *
+	 * @return
+	 */
+	public long getSize() {
+		ByteBuffer gzip = this.gzip;
+		return (this.content != null ? this.content.capacity() : 0) + (gzip != null ? gzip.capacity() : 0);
+	}
+	
+	/**
+	 * Returns <code>true</code> if the file contents are held in memory, <code>false</code> otherwise.
+	 *
+	 * @return
+	 */
+	public boolean isCached() { return this.content != null; }
+	
+	/**
+	 * Checks the request validators against this file.
+	 * <code>If-None-Match</code> takes precedence over <code>If-Modified-Since</code>, as required by RFC 7232.
+	 *
+	 * @param ifNoneMatch
+	 * @param ifModifiedSince
+	 * @return
+	 */
+	public boolean isNotModified(String ifNoneMatch, String ifModifiedSince) {
+		if(ifNoneMatch != null) {
+			for(String tag : ifNoneMatch.split(",")) {
+				tag = tag.trim();
+				if(tag.startsWith("W/"))
+					tag = tag.substring(2);
+				if(tag.equals("*") || tag.equals(this.etag) || (tag.startsWith(this.etag.substring(0, this.etag.length() - 1) + "-") && tag.endsWith("\"")))
+					return true;
+			}
+			return false;
+		}
+		if(ifModifiedSince != null) {
+			Date since = DateUtils.fromGMTString(ifModifiedSince);
+			return since != null && this.lastModified / 1000 <= since.getTime() / 1000;
+		}
+		return false;
+	}
+}
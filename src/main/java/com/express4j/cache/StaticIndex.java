@@ -0,0 +1,138 @@
+package com.express4j.cache;
+
+import com.express4j.logging.RequestLog;
+import com.express4j.utils.ThreadUtils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of every file below a static directory, kept up to date by a WatchService.
+ * The directory is walked once in the background; afterwards files created, modified or deleted only update their own entries.
+ * Until the first walk has finished the index is not ready and lookups should go to the filesystem.
+ */
+public class StaticIndex implements Closeable {
+	private File directory;
+	private StaticCache cache;
+	private RequestLog log;
+	private WatchService watcher;
+	private Map<WatchKey, Path> keys;
+	private Set<String> files;
+	private volatile boolean ready;
+	
+	public StaticIndex(File directory, StaticCache cache) throws IOException { this(directory, cache, null); }
+	public StaticIndex(File directory, StaticCache cache, RequestLog log) throws IOException {
+		this.directory = directory;
+		this.cache = cache;
+		this.log = log;
+		this.watcher = FileSystems.getDefault().newWatchService();
+		this.keys = new ConcurrentHashMap<WatchKey, Path>();
+		this.files = ConcurrentHashMap.newKeySet();
+		
+		ThreadUtils.namedFactory("Express4J-static-watcher").newThread(new Runnable() {
+			@Override
+			public void run() {
+				StaticIndex.this.watch();
+			}
+		}).start();
+	}
+	
+	/**
+	 * Returns <code>true</code> once the directory has been indexed, <code>false</code> otherwise.
+	 *
+	 * @return
+	 */
+	public boolean isReady() { return this.ready; }
+	
+	/**
+	 * Returns <code>true</code> if the file at the provided path, relative to the directory and separated by <code>/</code>, exists
+	 *
+	 * @param path
+	 * @return
+	 */
+	public boolean contains(String path) { return this.files.contains(path); }
+	
+	/**
+	 * Returns the number of files in the index
+	 *
+	 * @return
+	 */
+	public int size() { return this.files.size(); }
+	
+	@Override
+	public void close() throws IOException {
+		this.watcher.close();
+	}
+	
+	private void watch() {
+		try {
+			this.register(this.directory.toPath());
+			this.ready = true;
+			while(true) {
+				WatchKey key = this.watcher.take();
+				Path dir = this.keys.get(key);
+				for(WatchEvent<?> event : key.pollEvents()) {
+					if(event.kind() == StandardWatchEventKinds.OVERFLOW) {
+						this.files.clear();
+						this.cache.clear();
+						this.register(this.directory.toPath());
+						continue;
+					}
+					if(dir == null)
+						continue;
+					Path path = dir.resolve((Path) event.context());
+					String relative = this.relativize(path);
+					if(event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+						if(path.toFile().isDirectory())
+							this.register(path);
+						else
+							this.files.add(relative);
+					} else if(event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+						this.files.remove(relative);
+						for(Iterator<String> it = this.files.iterator(); it.hasNext(); )
+							if(it.next().startsWith(relative + "/"))
+								it.remove();
+					}
+					this.cache.invalidate(path.toFile());
+				}
+				if(!key.reset())
+					this.keys.remove(key);
+			}
+		} catch(ClosedWatchServiceException | InterruptedException e) {
+			this.ready = false;
+		} catch(IOException e) {
+			this.ready = false;
+			if(this.log != null)
+				this.log.error("Stopped watching " + this.directory, e);
+		}
+	}
+	
+	private void register(Path dir) throws IOException {
+		this.keys.put(dir.register(this.watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY), dir);
+		File[] children = dir.toFile().listFiles();
+		if(children == null)
+			return;
+		for(File child : children) {
+			if(child.isDirectory())
+				this.register(child.toPath());
+			else if(child.isFile())
+				this.files.add(this.relativize(child.toPath()));
+		}
+	}
+	
+	private String relativize(Path path) {
+		return this.directory.toPath().relativize(path).toString().replace(File.separatorChar, '/');
+	}
+}
@@ -0,0 +1,19 @@
+package com.express4j.events;
+
+import com.express4j.service.HttpRequest;
+import com.express4j.service.HttpResponse;
+
+import java.util.concurrent.CompletionStage;
+
+public interface AsyncRequest {
+	/**
+	 * Called by the Express4J service when a path listener is fired
+	 * The worker thread is released as soon as this returns, the request continues once the returned stage completes.
+	 * A stage completing exceptionally is answered with the same error documents as a thrown exception.
+	 *
+	 * @param req
+	 * @param res
+	 * @return
+	 */
+	CompletionStage<?> handle(HttpRequest req, HttpResponse res) throws Exception;
+}
@@ -0,0 +1,24 @@
+package com.express4j.events;
+
+import java.util.concurrent.CompletionStage;
+
+public interface Chain {
+	/**
+	 * Runs the next handler matching the request, in the order they were added
+	 * Does nothing once every matching handler has been run
+	 *
+	 * @throws Exception
+	 */
+	void next() throws Exception;
+	
+	/**
+	 * Suspends the chain until the provided stage completes, the current handler should return right after calling this
+	 * Once the stage completes the chain moves on to the next handler if no response has been sent, a failed stage is handled like a thrown exception.
+	 * Chains that cannot be suspended throw an <code>IllegalStateException</code>.
+	 *
+	 * @param stage
+	 */
+	default void await(CompletionStage<?> stage) {
+		throw new IllegalStateException(this.getClass().getName() + " cannot be suspended.");
+	}
+}
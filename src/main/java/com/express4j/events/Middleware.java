@@ -0,0 +1,16 @@
+package com.express4j.events;
+
+import com.express4j.service.HttpRequest;
+import com.express4j.service.HttpResponse;
+
+public interface Middleware {
+	/**
+	 * Called by the Express4J service when a path listener is fired
+	 * Call <code>Chain.next()</code> to pass the request on to the next handler, otherwise the chain ends here
+	 *
+	 * @param req
+	 * @param res
+	 * @param chain
+	 */
+	void handle(HttpRequest req, HttpResponse res, Chain chain) throws Exception;
+}
@@ -0,0 +1,8 @@
+package com.express4j.exception;
+
+import java.io.IOException;
+
+public class MalformedBodyException extends IOException {
+	public MalformedBodyException() { super(); }
+	public MalformedBodyException(String message) { super(message); }
+}
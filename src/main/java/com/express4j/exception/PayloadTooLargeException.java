@@ -0,0 +1,8 @@
+package com.express4j.exception;
+
+import java.io.IOException;
+
+public class PayloadTooLargeException extends IOException {
+	public PayloadTooLargeException() { super(); }
+	public PayloadTooLargeException(String message) { super(message); }
+}
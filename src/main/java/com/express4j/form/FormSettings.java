@@ -0,0 +1,26 @@
+package com.express4j.form;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.File;
+
+@Getter
+@Setter
+public class FormSettings {
+	private int maxParts;
+	private int maxHeaderSize;
+	private long maxFieldSize;
+	private long maxFileSize;
+	private int spoolThreshold;
+	private File tempDirectory;
+	
+	public FormSettings() {
+		this.maxParts = 128;
+		this.maxHeaderSize = 8192;
+		this.maxFieldSize = 1L << 20;
+		this.maxFileSize = -1;
+		this.spoolThreshold = 16384;
+		this.tempDirectory = new File(System.getProperty("java.io.tmpdir"));
+	}
+}
@@ -0,0 +1,367 @@
+package com.express4j.form;
+
+import com.express4j.exception.MalformedBodyException;
+import com.express4j.exception.PayloadTooLargeException;
+import com.express4j.logging.RequestLog;
+import com.express4j.service.obj.HeaderIndex;
+import com.express4j.utils.BufferPool;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming parser for multipart/form-data bodies, reading one part at a time.
+ * Memory use is bounded by the read buffer and <code>FormSettings.getSpoolThreshold()</code>: larger file parts are written to
+ * temporary files as they are read. Temporary files are deleted when the parser is closed.
+ */
+public class MultipartParser implements Closeable {
+	static final String TEMP_PREFIX = "express4j-upload-";
+	
+	private InputStream in;
+	private FormSettings settings;
+	private RequestLog log;
+	private byte[] delimiter;
+	private byte[] buffer;
+	private int position;
+	private int limit;
+	private boolean eof;
+	
+	private boolean started;
+	private boolean finished;
+	private int count;
+	private List<Part> parts;
+	
+	public MultipartParser(InputStream in, String boundary, FormSettings settings) { this(in, boundary, settings, null); }
+	public MultipartParser(InputStream in, String boundary, FormSettings settings, RequestLog log) {
+		this.in = in;
+		this.settings = settings;
+		this.log = log;
+		this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+		this.buffer = BufferPool.SHARED.acquire();
+		this.parts = new ArrayList<Part>();
+	}
+	
+	/**
+	 * Returns the boundary of a multipart Content-Type header, or <code>null</code> if it has none
+	 *
+	 * @param contentType
+	 * @return
+	 */
+	public static String getBoundary(String contentType) {
+		if(contentType == null)
+			return null;
+		for(String param : contentType.split(";")) {
+			param = param.trim();
+			if(param.toLowerCase().startsWith("boundary=")) {
+				String boundary = param.substring(9).trim();
+				if(boundary.length() > 1 && boundary.startsWith("\"") && boundary.endsWith("\""))
+					boundary = boundary.substring(1, boundary.length() - 1);
+				return boundary.isEmpty() || boundary.length() > 70 ? null : boundary;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Reads the next part of the body, or returns <code>null</code> once every part has been read
+	 *
+	 * @return
+	 * @throws IOException
+	 * @throws MalformedBodyException
+	 * @throws PayloadTooLargeException
+	 */
+	public Part next() throws IOException, MalformedBodyException, PayloadTooLargeException {
+		if(this.finished)
+			return null;
+		if(!this.started) {
+			this.started = true;
+			this.skipPreamble();
+		}
+		if(this.finished)
+			return null;
+		if(++this.count > this.settings.getMaxParts())
+			throw new PayloadTooLargeException("Request body contains more than " + this.settings.getMaxParts() + " parts.");
+		
+		HeaderIndex headers = this.readHeaders();
+		String disposition = headers.first("Content-Disposition");
+		String name = parameter(disposition, "name");
+		String filename = parameter(disposition, "filename");
+		String type = headers.first("Content-Type");
+		if(name == null)
+			throw new MalformedBodyException("Multipart part is missing a Content-Disposition name.");
+		
+		long max = filename != null ? this.settings.getMaxFileSize() : this.settings.getMaxFieldSize();
+		Spool spool = new Spool(filename != null ? this.settings.getSpoolThreshold() : Integer.MAX_VALUE, max, name);
+		try {
+			this.readData(spool);
+			spool.close();
+		} catch(IOException e) {
+			spool.discard();
+			throw e;
+		}
+		this.afterDelimiter();
+		Part part = new Part(name, filename, type != null ? type : (filename != null ? "application/octet-stream" : "text/plain"), headers, spool.data(), spool.file, spool.size);
+		this.parts.add(part);
+		return part;
+	}
+	
+	/**
+	 * Reads every remaining part
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	public List<Part> readAll() throws IOException {
+		List<Part> parts = new ArrayList<Part>();
+		Part part;
+		while((part = this.next()) != null)
+			parts.add(part);
+		return parts;
+	}
+	
+	/**
+	 * Returns <code>true</code> once the closing boundary has been read, <code>false</code> otherwise.
+	 *
+	 * @return
+	 */
+	public boolean isFinished() { return this.finished; }
+	
+	/**
+	 * Deletes the temporary files of every part read by this parser and returns the read buffer to its pool
+	 */
+	@Override
+	public void close() {
+		for(Part part : this.parts)
+			part.delete();
+		if(this.buffer != null) {
+			BufferPool.SHARED.release(this.buffer);
+			this.buffer = null;
+		}
+	}
+	
+	private void skipPreamble() throws IOException {
+		this.fill(this.delimiter.length);
+		if(this.limit - this.position >= this.delimiter.length - 2 && this.startsWith(this.delimiter, 2))
+			this.position += this.delimiter.length - 2;
+		else
+			this.readData(null);
+		this.afterDelimiter();
+	}
+	
+	private void afterDelimiter() throws IOException {
+		this.fill(2);
+		if(this.limit - this.position < 2)
+			throw new MalformedBodyException("Multipart body ended unexpectedly.");
+		if(this.buffer[this.position] == '-' && this.buffer[this.position + 1] == '-') {
+			this.finished = true;
+			return;
+		}
+		this.readLine();
+	}
+	
+	private HeaderIndex readHeaders() throws IOException {
+		Map<String, List<String>> headers = new LinkedHashMap<String, List<String>>();
+		int total = 0;
+		String line;
+		while(!(line = this.readLine()).isEmpty()) {
+			total += line.length();
+			if(total > this.settings.getMaxHeaderSize())
+				throw new PayloadTooLargeException("Multipart part headers are too large.");
+			int colon = line.indexOf(':');
+			if(colon <= 0)
+				throw new MalformedBodyException("Invalid multipart header: " + line);
+			String key = line.substring(0, colon).trim();
+			List<String> values = headers.get(key);
+			if(values == null) {
+				values = new ArrayList<String>(1);
+				headers.put(key, values);
+			}
+			values.add(line.substring(colon + 1).trim());
+		}
+		return new HeaderIndex(headers, false);
+	}
+	
+	private String readLine() throws IOException {
+		ByteArrayOutputStream line = null;
+		while(true) {
+			this.fill(2);
+			if(this.position >= this.limit)
+				throw new MalformedBodyException("Multipart body ended unexpectedly.");
+			for(int i = this.position; i + 1 < this.limit; i++)
+				if(this.buffer[i] == '\r' && this.buffer[i + 1] == '\n') {
+					String text = new String(this.buffer, this.position, i - this.position, StandardCharsets.UTF_8);
+					this.position = i + 2;
+					return line == null ? text : new String(line.toByteArray(), StandardCharsets.UTF_8) + text;
+				}
+			int end = this.limit - 1;
+			if(line == null)
+				line = new ByteArrayOutputStream();
+			line.write(this.buffer, this.position, end - this.position);
+			if(line.size() > this.settings.getMaxHeaderSize())
+				throw new PayloadTooLargeException("Multipart part headers are too large.");
+			this.position = end;
+			if(this.eof)
+				throw new MalformedBodyException("Multipart body ended unexpectedly.");
+			this.fill(this.limit - this.position + 1);
+		}
+	}
+	
+	/**
+	 * Copies data up to the next delimiter to the provided stream, or discards it if there is none, and consumes the delimiter
+	 *
+	 * @param os
+	 * @throws IOException
+	 */
+	private void readData(OutputStream os) throws IOException {
+		while(true) {
+			this.fill(this.delimiter.length);
+			int match = this.indexOf(this.delimiter);
+			if(match >= 0) {
+				if(os != null)
+					os.write(this.buffer, this.position, match - this.position);
+				this.position = match + this.delimiter.length;
+				return;
+			}
+			if(this.eof)
+				throw new MalformedBodyException("Multipart body is missing its closing boundary.");
+			int safe = Math.max(this.position, this.limit - this.delimiter.length + 1);
+			if(os != null)
+				os.write(this.buffer, this.position, safe - this.position);
+			this.position = safe;
+			this.fill(this.limit - this.position + 1);
+		}
+	}
+	
+	private int indexOf(byte[] pattern) {
+		int last = this.limit - pattern.length;
+		outer:
+		for(int i = this.position; i <= last; i++) {
+			for(int j = 0; j < pattern.length; j++)
+				if(this.buffer[i + j] != pattern[j])
+					continue outer;
+			return i;
+		}
+		return -1;
+	}
+	
+	private boolean startsWith(byte[] pattern, int offset) {
+		for(int j = offset; j < pattern.length; j++)
+			if(this.buffer[this.position + j - offset] != pattern[j])
+				return false;
+		return true;
+	}
+	
+	/**
+	 * Makes sure at least <code>needed</code> bytes are buffered, unless the body ends first
+	 *
+	 * @param needed
+	 * @throws IOException
+	 */
+	private void fill(int needed) throws IOException {
+		if(this.limit - this.position >= needed || this.eof)
+			return;
+		if(this.position > 0) {
+			System.arraycopy(this.buffer, this.position, this.buffer, 0, this.limit - this.position);
+			this.limit -= this.position;
+			this.position = 0;
+		}
+		while(this.limit < needed) {
+			int count = this.in.read(this.buffer, this.limit, this.buffer.length - this.limit);
+			if(count < 0) {
+				this.eof = true;
+				return;
+			}
+			this.limit += count;
+		}
+	}
+	
+	private static String parameter(String header, String name) {
+		if(header == null)
+			return null;
+		for(String param : header.split(";")) {
+			param = param.trim();
+			int equals = param.indexOf('=');
+			if(equals > 0 && param.substring(0, equals).trim().equalsIgnoreCase(name)) {
+				String value = param.substring(equals + 1).trim();
+				if(value.length() > 1 && value.startsWith("\"") && value.endsWith("\""))
+					value = value.substring(1, value.length() - 1);
+				return value;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Keeps written data in memory until it reaches the threshold, then moves it to a temporary file
+	 */
+	private class Spool extends OutputStream {
+		private int threshold;
+		private long max;
+		private String name;
+		private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+		private OutputStream os;
+		private File file;
+		private long size;
+		
+		private Spool(int threshold, long max, String name) {
+			this.threshold = threshold;
+			this.max = max;
+			this.name = name;
+		}
+		
+		@Override
+		public void write(int b) throws IOException {
+			this.write(new byte[] { (byte) b }, 0, 1);
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if(len == 0)
+				return;
+			this.size += len;
+			if(this.max >= 0 && this.size > this.max)
+				throw new PayloadTooLargeException("Multipart part " + this.name + " exceeds the limit of " + this.max + " bytes.");
+			if(this.os == null && (long) this.memory.size() + len > this.threshold) {
+				this.file = File.createTempFile(TEMP_PREFIX, ".tmp", MultipartParser.this.settings.getTempDirectory());
+				this.os = new FileOutputStream(this.file);
+				this.memory.writeTo(this.os);
+				this.memory = null;
+			}
+			if(this.os != null)
+				this.os.write(b, off, len);
+			else
+				this.memory.write(b, off, len);
+		}
+		
+		@Override
+		public void close() throws IOException {
+			if(this.os != null)
+				this.os.close();
+		}
+		
+		private byte[] data() {
+			return this.memory != null ? this.memory.toByteArray() : null;
+		}
+		
+		private void discard() {
+			try {
+				this.close();
+			} catch(IOException e) {
+				if(MultipartParser.this.log != null)
+					MultipartParser.this.log.error("Could not close a spooled upload", e);
+			}
+			if(this.file != null)
+				this.file.delete();
+		}
+	}
+}
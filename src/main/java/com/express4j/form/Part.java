@@ -0,0 +1,110 @@
+package com.express4j.form;
+
+import com.express4j.service.obj.HeaderIndex;
+import lombok.Getter;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A part of a multipart/form-data body.
+ * Small parts are held in memory, larger file parts are spooled to a temporary file that is deleted once the request is done.
+ */
+public class Part {
+	@Getter private String name;
+	@Getter private String filename;
+	@Getter private String contentType;
+	@Getter private HeaderIndex headers;
+	@Getter private long size;
+	
+	private byte[] data;
+	private File file;
+	private boolean temporary;
+	
+	Part(String name, String filename, String contentType, HeaderIndex headers, byte[] data, File file, long size) {
+		this.name = name;
+		this.filename = filename;
+		this.contentType = contentType;
+		this.headers = headers;
+		this.data = data;
+		this.file = file;
+		this.temporary = file != null;
+		this.size = size;
+	}
+	
+	/**
+	 * Returns <code>true</code> if this part is a file upload, <code>false</code> if it is a plain field.
+	 *
+	 * @return
+	 */
+	public boolean isFile() { return this.filename != null; }
+	
+	/**
+	 * Returns <code>true</code> if this part was spooled to a temporary file, <code>false</code> if it is held in memory.
+	 *
+	 * @return
+	 */
+	public boolean isSpooled() { return this.file != null; }
+	
+	/**
+	 * Returns the contents of this part
+	 *
+	 * @return
+	 * @throws FileNotFoundException
+	 */
+	public InputStream getInputStream() throws FileNotFoundException {
+		if(this.file != null)
+			return new FileInputStream(this.file);
+		return new ByteArrayInputStream(this.data);
+	}
+	
+	/**
+	 * Returns the contents of this part decoded as UTF-8
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	public String getString() throws IOException {
+		if(this.file != null)
+			return new String(Files.readAllBytes(this.file.toPath()), StandardCharsets.UTF_8);
+		return new String(this.data, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Writes the contents of this part to the provided file, moving the temporary file when possible
+	 *
+	 * @param target
+	 * @throws IOException
+	 */
+	public void saveTo(File target) throws IOException {
+		if(this.file != null) {
+			Files.move(this.file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			this.file = target;
+			this.temporary = false;
+			return;
+		}
+		OutputStream os = new FileOutputStream(target);
+		try {
+			os.write(this.data);
+		} finally {
+			os.close();
+		}
+	}
+	
+	/**
+	 * Deletes the temporary file of this part, if it has one and it was not saved elsewhere
+	 */
+	public void delete() {
+		if(this.temporary)
+			this.file.delete();
+	}
+}
@@ -0,0 +1,49 @@
+package com.express4j.logging;
+
+import lombok.Getter;
+
+/**
+ * A preallocated slot of a <code>LogRing</code>
+ * Request threads only copy references and numbers into it, formatting happens later on the writer thread.
+ */
+@Getter
+public class LogEntry {
+	public enum Type { ACCESS, ERROR }
+	
+	volatile long sequence;
+	
+	Type type;
+	long timestamp;
+	String method;
+	String uri;
+	String protocol;
+	String ip;
+	int status;
+	String length;
+	String referer;
+	String userAgent;
+	long nanos;
+	String thread;
+	String message;
+	Throwable error;
+	
+	LogEntry(long sequence) {
+		this.sequence = sequence;
+	}
+	
+	/**
+	 * Drops every reference held by the slot so it does not keep requests alive while it waits to be reused
+	 */
+	void clear() {
+		this.method = null;
+		this.uri = null;
+		this.protocol = null;
+		this.ip = null;
+		this.length = null;
+		this.referer = null;
+		this.userAgent = null;
+		this.thread = null;
+		this.message = null;
+		this.error = null;
+	}
+}
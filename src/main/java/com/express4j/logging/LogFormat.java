@@ -0,0 +1,15 @@
+package com.express4j.logging;
+
+/**
+ * Turns an access record into a log line
+ * Formats run on the log's writer thread, never on a request thread.
+ */
+public interface LogFormat {
+	/**
+	 * Appends the line for an access record, without its line terminator
+	 *
+	 * @param entry
+	 * @param out
+	 */
+	void format(LogEntry entry, StringBuilder out);
+}
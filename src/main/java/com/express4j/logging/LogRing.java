@@ -0,0 +1,106 @@
+package com.express4j.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded multi-producer, single-consumer ring of preallocated <code>LogEntry</code> slots
+ * Producers claim a sequence with a CAS, fill the slot and publish it by writing the slot's sequence.
+ * The consumer reads slots in order and only frees one once it is done with it, so nothing is ever allocated or locked.
+ */
+public class LogRing {
+	private final LogEntry[] entries;
+	private final int mask;
+	private final AtomicLong tail = new AtomicLong();
+	private final AtomicLong head = new AtomicLong();
+	
+	/**
+	 * Creates a ring holding at least <code>capacity</code> records, rounded up to a power of two
+	 *
+	 * @param capacity
+	 */
+	public LogRing(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		this.entries = new LogEntry[size];
+		this.mask = size - 1;
+		for(int i = 0; i < size; i++)
+			this.entries[i] = new LogEntry(i - size);
+	}
+	
+	/**
+	 * Claims the next slot, or returns -1 if the ring is full and <code>wait</code> is <code>false</code>
+	 * The claimed slot must be filled through <code>LogRing.get()</code> and handed over with <code>LogRing.publish()</code>.
+	 *
+	 * @param wait <code>true</code> to wait for the consumer to free a slot
+	 * @return
+	 */
+	public long claim(boolean wait) {
+		int spins = 0;
+		while(true) {
+			long sequence = this.tail.get();
+			if(sequence - this.head.get() >= this.entries.length) {
+				if(!wait)
+					return -1;
+				if(++spins < 64)
+					Thread.yield();
+				else
+					LockSupport.parkNanos(50000);
+				continue;
+			}
+			if(this.tail.compareAndSet(sequence, sequence + 1))
+				return sequence;
+		}
+	}
+	
+	/**
+	 * Returns the slot of a claimed sequence
+	 *
+	 * @param sequence
+	 * @return
+	 */
+	public LogEntry get(long sequence) { return this.entries[(int) sequence & this.mask]; }
+	
+	/**
+	 * Hands a filled slot over to the consumer
+	 *
+	 * @param sequence
+	 */
+	public void publish(long sequence) {
+		this.get(sequence).sequence = sequence;
+	}
+	
+	/**
+	 * Returns the oldest published record without freeing it, or <code>null</code> if there is none
+	 * Only the consumer thread may call this.
+	 *
+	 * @return
+	 */
+	public LogEntry peek() {
+		long sequence = this.head.get();
+		LogEntry entry = this.get(sequence);
+		return entry.sequence == sequence ? entry : null;
+	}
+	
+	/**
+	 * Frees the record returned by <code>LogRing.peek()</code>
+	 * Only the consumer thread may call this.
+	 */
+	public void release() {
+		this.get(this.head.get()).clear();
+		this.head.lazySet(this.head.get() + 1);
+	}
+	
+	/**
+	 * Returns how many records are waiting to be consumed
+	 *
+	 * @return
+	 */
+	public int size() { return (int) Math.max(0, this.tail.get() - this.head.get()); }
+	
+	/**
+	 * Returns how many records the ring can hold
+	 *
+	 * @return
+	 */
+	public int capacity() { return this.entries.length; }
+}
@@ -0,0 +1,38 @@
+package com.express4j.logging;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.File;
+
+/**
+ * Settings of a <code>RequestLog</code>, read once when the log is created
+ * A <code>null</code> access log disables access logging, a <code>null</code> error log writes errors to <code>System.err</code>.
+ */
+@Getter
+@Setter
+public class LogSettings {
+	private File accessLog;
+	private File errorLog;
+	private LogFormat format;
+	private int capacity;
+	private OverflowPolicy overflow;
+	private int bufferSize;
+	private long maxFileSize;
+	private int maxFiles;
+	private boolean rotateDaily;
+	private long pollInterval;
+	
+	public LogSettings() {
+		this.accessLog = null;
+		this.errorLog = null;
+		this.format = StandardFormat.COMBINED;
+		this.capacity = 8192;
+		this.overflow = OverflowPolicy.DROP;
+		this.bufferSize = 65536;
+		this.maxFileSize = 64L << 20;
+		this.maxFiles = 5;
+		this.rotateDaily = false;
+		this.pollInterval = 10;
+	}
+}
@@ -0,0 +1,15 @@
+package com.express4j.logging;
+
+/**
+ * What a request thread does when the log ring is full
+ */
+public enum OverflowPolicy {
+	/**
+	 * Discard the record and count it, the request never waits on the log
+	 */
+	DROP,
+	/**
+	 * Wait for the writer to free a slot, no record is ever lost
+	 */
+	BLOCK;
+}
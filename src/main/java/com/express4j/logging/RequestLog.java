@@ -0,0 +1,255 @@
+package com.express4j.logging;
+
+import com.express4j.service.HttpRequest;
+import com.express4j.service.HttpResponse;
+import com.express4j.utils.ThreadUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Access and error log written by a background thread
+ * Request threads copy a few references into a preallocated <code>LogRing</code> slot and return, they never format, lock or touch a file.
+ * The writer thread drains the ring in batches into buffered <code>RollingFile</code>s and flushes them whenever the ring runs dry.
+ * The writer starts with the first record, <code>RequestLog.close()</code> drains and stops it.
+ */
+public class RequestLog implements Closeable {
+	private final LogRing ring;
+	private final LogFormat format;
+	private final boolean blocking;
+	private final long pollInterval;
+	private final RollingFile access;
+	private final RollingFile errors;
+	private final LongAdder dropped = new LongAdder();
+	
+	private volatile Thread writer;
+	private volatile boolean running;
+	private boolean hooked = false;
+	
+	public RequestLog() { this(new LogSettings()); }
+	
+	public RequestLog(LogSettings settings) {
+		this.ring = new LogRing(settings.getCapacity());
+		this.format = settings.getFormat();
+		this.blocking = settings.getOverflow() == OverflowPolicy.BLOCK;
+		this.pollInterval = TimeUnit.MILLISECONDS.toNanos(Math.max(1, settings.getPollInterval()));
+		this.access = settings.getAccessLog() != null ? new RollingFile(settings.getAccessLog(), settings) : null;
+		this.errors = new RollingFile(settings.getErrorLog(), settings);
+	}
+	
+	/**
+	 * Returns <code>true</code> if access records are written anywhere
+	 *
+	 * @return
+	 */
+	public boolean isLoggingAccess() { return this.access != null; }
+	
+	/**
+	 * Records a handled request
+	 *
+	 * @param req
+	 * @param res
+	 * @param nanos the time taken to handle the request
+	 */
+	public void access(HttpRequest req, HttpResponse res, long nanos) {
+		if(this.access == null)
+			return;
+		long sequence = this.claim();
+		if(sequence < 0)
+			return;
+		LogEntry entry = this.ring.get(sequence);
+			entry.type = LogEntry.Type.ACCESS;
+			entry.timestamp = System.currentTimeMillis();
+			entry.method = req.getMethod().toString();
+			entry.uri = req.getOriginalURL();
+			entry.protocol = req.getProtocol();
+			entry.ip = req.getIP();
+			entry.status = res.getStatus();
+			entry.length = first(res.get("Content-Length"));
+			entry.referer = first(req.get("Referer"));
+			entry.userAgent = first(req.get("User-Agent"));
+			entry.nanos = nanos;
+		this.ring.publish(sequence);
+	}
+	
+	/**
+	 * Records an error that ended a request
+	 *
+	 * @param req the request, or <code>null</code> if the error is not tied to one
+	 * @param error
+	 */
+	public void error(HttpRequest req, Throwable error) {
+		long sequence = this.claim();
+		if(sequence < 0)
+			return;
+		LogEntry entry = this.ring.get(sequence);
+			entry.type = LogEntry.Type.ERROR;
+			entry.timestamp = System.currentTimeMillis();
+			entry.thread = Thread.currentThread().getName();
+			entry.error = error;
+			if(req != null) {
+				entry.method = req.getMethod().toString();
+				entry.uri = req.getOriginalURL();
+				entry.ip = req.getIP();
+			}
+		this.ring.publish(sequence);
+	}
+	
+	/**
+	 * Records an error with a message
+	 *
+	 * @param message
+	 * @param error may be <code>null</code>
+	 */
+	public void error(String message, Throwable error) {
+		long sequence = this.claim();
+		if(sequence < 0)
+			return;
+		LogEntry entry = this.ring.get(sequence);
+			entry.type = LogEntry.Type.ERROR;
+			entry.timestamp = System.currentTimeMillis();
+			entry.thread = Thread.currentThread().getName();
+			entry.message = message;
+			entry.error = error;
+		this.ring.publish(sequence);
+	}
+	
+	/**
+	 * Returns how many records were discarded because the ring was full
+	 *
+	 * @return
+	 */
+	public long getDropped() { return this.dropped.sum(); }
+	
+	/**
+	 * Returns how many records are waiting to be written
+	 *
+	 * @return
+	 */
+	public int getPending() { return this.ring.size(); }
+	
+	/**
+	 * Writes every pending record and stops the writer thread
+	 * Records logged afterwards start a new writer.
+	 */
+	@Override
+	public synchronized void close() {
+		Thread writer = this.writer;
+		if(writer == null)
+			return;
+		this.running = false;
+		LockSupport.unpark(writer);
+		try {
+			writer.join();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		this.writer = null;
+	}
+	
+	private long claim() {
+		if(this.writer == null)
+			this.start();
+		long sequence = this.ring.claim(this.blocking);
+		if(sequence < 0)
+			this.dropped.increment();
+		return sequence;
+	}
+	
+	private synchronized void start() {
+		if(this.writer != null)
+			return;
+		this.running = true;
+		this.writer = ThreadUtils.namedFactory("Express4J-log").newThread(new Runnable() {
+			@Override
+			public void run() {
+				RequestLog.this.drain();
+			}
+		});
+		this.writer.start();
+		if(!this.hooked) {
+			this.hooked = true;
+			Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					RequestLog.this.close();
+				}
+			}, "Express4J-log-shutdown"));
+		}
+	}
+	
+	/**
+	 * The writer loop, batches records until the ring is empty then flushes and waits for more
+	 */
+	private void drain() {
+		StringBuilder line = new StringBuilder(256);
+		while(true) {
+			LogEntry entry = this.ring.peek();
+			if(entry == null) {
+				this.flush();
+				if(!this.running && this.ring.peek() == null)
+					break;
+				LockSupport.parkNanos(this.pollInterval);
+				continue;
+			}
+			line.setLength(0);
+			try {
+				if(entry.type == LogEntry.Type.ACCESS) {
+					this.format.format(entry, line);
+					line.append('\n');
+					this.access.write(line.toString().getBytes(StandardCharsets.UTF_8));
+				} else {
+					this.formatError(entry, line);
+					this.errors.write(line.toString().getBytes(StandardCharsets.UTF_8));
+				}
+			} catch(Exception e) {
+				this.dropped.increment();
+			} finally {
+				this.ring.release();
+			}
+		}
+		try {
+			if(this.access != null)
+				this.access.close();
+			this.errors.close();
+		} catch(IOException e) {
+			// Nowhere left to report it
+		}
+	}
+	
+	private void flush() {
+		try {
+			if(this.access != null)
+				this.access.flush();
+			this.errors.flush();
+		} catch(IOException e) {
+			// Nowhere left to report it
+		}
+	}
+	
+	private void formatError(LogEntry entry, StringBuilder out) {
+		out.append(Instant.ofEpochMilli(entry.getTimestamp())).append(" [").append(entry.getThread()).append("] ");
+		if(entry.getMethod() != null)
+			out.append(entry.getIp()).append(' ').append(entry.getMethod()).append(' ').append(entry.getUri()).append(' ');
+		if(entry.getMessage() != null)
+			out.append(entry.getMessage()).append(' ');
+		if(entry.getError() != null) {
+			StringWriter trace = new StringWriter();
+			entry.getError().printStackTrace(new PrintWriter(trace));
+			out.append(trace);
+		} else
+			out.append('\n');
+	}
+	
+	private static String first(List<String> values) {
+		return values != null && !values.isEmpty() ? values.get(0) : null;
+	}
+}
@@ -0,0 +1,115 @@
+package com.express4j.logging;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Calendar;
+
+/**
+ * A buffered log file that rotates once it grows past a size or a day ends
+ * Rotated files are renamed <code>name.1</code>, <code>name.2</code>... up to <code>LogSettings.maxFiles</code>, the oldest one is deleted.
+ * Without a file, writes go to <code>System.err</code> and never rotate.
+ * Only the log's writer thread uses it.
+ */
+class RollingFile {
+	private final File file;
+	private final long maxFileSize;
+	private final int maxFiles;
+	private final boolean rotateDaily;
+	private final byte[] buffer;
+	private int count = 0;
+	private OutputStream os;
+	private long size;
+	private int day;
+	
+	RollingFile(File file, LogSettings settings) {
+		this.file = file;
+		this.maxFileSize = settings.getMaxFileSize();
+		this.maxFiles = settings.getMaxFiles();
+		this.rotateDaily = settings.isRotateDaily();
+		this.buffer = new byte[Math.max(1024, settings.getBufferSize())];
+	}
+	
+	/**
+	 * Buffers a record, rotating the file first if the record would not fit in it
+	 *
+	 * @param bytes
+	 * @throws IOException
+	 */
+	void write(byte[] bytes) throws IOException {
+		if(this.file != null) {
+			if(this.os == null)
+				this.open();
+			if((this.maxFileSize > 0 && this.size > 0 && this.size + bytes.length > this.maxFileSize) || (this.rotateDaily && this.day != today()))
+				this.rotate();
+			this.size += bytes.length;
+		}
+		if(this.count + bytes.length > this.buffer.length)
+			this.flush();
+		if(bytes.length > this.buffer.length)
+			this.stream().write(bytes);
+		else {
+			System.arraycopy(bytes, 0, this.buffer, this.count, bytes.length);
+			this.count += bytes.length;
+		}
+	}
+	
+	/**
+	 * Writes buffered records out in a single call
+	 *
+	 * @throws IOException
+	 */
+	void flush() throws IOException {
+		if(this.count > 0) {
+			this.stream().write(this.buffer, 0, this.count);
+			this.count = 0;
+		}
+		if(this.file == null)
+			System.err.flush();
+	}
+	
+	void close() throws IOException {
+		this.flush();
+		if(this.os != null) {
+			this.os.close();
+			this.os = null;
+		}
+	}
+	
+	private OutputStream stream() throws IOException {
+		if(this.file == null)
+			return System.err;
+		if(this.os == null)
+			this.open();
+		return this.os;
+	}
+	
+	private void open() throws IOException {
+		File parent = this.file.getAbsoluteFile().getParentFile();
+		if(parent != null)
+			parent.mkdirs();
+		this.os = new FileOutputStream(this.file, true);
+		this.size = this.file.length();
+		this.day = today();
+	}
+	
+	private void rotate() throws IOException {
+		this.flush();
+		this.os.close();
+		this.os = null;
+		if(this.maxFiles > 0) {
+			new File(this.file.getPath() + "." + this.maxFiles).delete();
+			for(int i = this.maxFiles - 1; i > 0; i--)
+				new File(this.file.getPath() + "." + i).renameTo(new File(this.file.getPath() + "." + (i + 1)));
+			this.file.renameTo(new File(this.file.getPath() + ".1"));
+		} else
+			this.file.delete();
+		this.open();
+	}
+	
+	private static int today() {
+		Calendar calendar = Calendar.getInstance();
+		return calendar.get(Calendar.YEAR) * 1000 + calendar.get(Calendar.DAY_OF_YEAR);
+	}
+}
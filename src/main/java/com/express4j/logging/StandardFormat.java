@@ -0,0 +1,39 @@
+package com.express4j.logging;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * The usual access log formats
+ */
+public enum StandardFormat implements LogFormat {
+	/**
+	 * NCSA Common Log Format: <code>ip - - [time] "request" status length</code>
+	 */
+	COMMON,
+	/**
+	 * Combined Log Format, Common Log Format followed by the referer and user agent
+	 */
+	COMBINED,
+	/**
+	 * Combined Log Format followed by the time taken to handle the request, in microseconds
+	 */
+	TIMED;
+	
+	private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.US).withZone(ZoneId.systemDefault());
+	
+	@Override
+	public void format(LogEntry entry, StringBuilder out) {
+		out.append(entry.getIp()).append(" - - [");
+		DATE.formatTo(Instant.ofEpochMilli(entry.getTimestamp()), out);
+		out.append("] \"").append(entry.getMethod()).append(' ').append(entry.getUri()).append(' ').append(entry.getProtocol()).append("\" ");
+		out.append(entry.getStatus()).append(' ').append(entry.getLength() != null ? entry.getLength() : "-");
+		if(this == COMMON)
+			return;
+		out.append(" \"").append(entry.getReferer() != null ? entry.getReferer() : "-").append("\" \"").append(entry.getUserAgent() != null ? entry.getUserAgent() : "-").append('"');
+		if(this == TIMED)
+			out.append(' ').append(entry.getNanos() / 1000);
+	}
+}
@@ -0,0 +1,137 @@
+package com.express4j.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram with log-linear buckets, in the style of HdrHistogram.
+ * Every power of two is split into 8 linear sub-buckets, so any recorded value is known to within 12.5%.
+ * Counts are striped over several arrays by thread so concurrent recorders rarely touch the same cache line.
+ */
+public class Histogram {
+	private static final int SUB_BITS = 3;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	private static final int MAX_EXPONENT = 44;
+	static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT;
+	
+	private final AtomicLongArray[] stripes;
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+	
+	public Histogram() {
+		int stripes = Integer.highestOneBit(Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors())));
+		this.stripes = new AtomicLongArray[stripes];
+		for(int i = 0; i < stripes; i++)
+			this.stripes[i] = new AtomicLongArray(BUCKETS);
+	}
+	
+	/**
+	 * Records a value, negative values are recorded as 0
+	 *
+	 * @param value
+	 */
+	public void record(long value) {
+		if(value < 0)
+			value = 0;
+		this.stripes[(int) (Thread.currentThread().getId() & (this.stripes.length - 1))].incrementAndGet(index(value));
+		this.sum.add(value);
+		this.max.accumulate(value);
+	}
+	
+	/**
+	 * Returns a copy of the current counts
+	 *
+	 * @return
+	 */
+	public Snapshot snapshot() {
+		long[] counts = new long[BUCKETS];
+		long count = 0;
+		for(AtomicLongArray stripe : this.stripes)
+			for(int i = 0; i < BUCKETS; i++) {
+				long value = stripe.get(i);
+				counts[i] += value;
+				count += value;
+			}
+		return new Snapshot(counts, count, this.sum.sum(), this.max.get());
+	}
+	
+	static int index(long value) {
+		if(value < SUB_COUNT)
+			return (int) value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		if(exponent > MAX_EXPONENT)
+			return BUCKETS - 1;
+		int shift = exponent - SUB_BITS;
+		return (shift + 1) * SUB_COUNT + (int) ((value >>> shift) & (SUB_COUNT - 1));
+	}
+	
+	/**
+	 * Returns the largest value recorded in the provided bucket
+	 *
+	 * @param index
+	 * @return
+	 */
+	static long upperBound(int index) {
+		if(index < SUB_COUNT)
+			return index;
+		int shift = index / SUB_COUNT - 1;
+		long mantissa = SUB_COUNT + index % SUB_COUNT;
+		return ((mantissa + 1) << shift) - 1;
+	}
+	
+	/**
+	 * An immutable copy of a histogram's counts
+	 */
+	public static class Snapshot {
+		private final long[] counts;
+		private final long count;
+		private final long sum;
+		private final long max;
+		
+		Snapshot(long[] counts, long count, long sum, long max) {
+			this.counts = counts;
+			this.count = count;
+			this.sum = sum;
+			this.max = max;
+		}
+		
+		public long getCount() { return this.count; }
+		public long getSum() { return this.sum; }
+		public long getMax() { return this.max; }
+		public double getMean() { return this.count > 0 ? (double) this.sum / this.count : 0; }
+		
+		/**
+		 * Returns the value below which the provided fraction of recorded values fall, such as 0.99
+		 *
+		 * @param quantile
+		 * @return
+		 */
+		public long getPercentile(double quantile) {
+			if(this.count == 0)
+				return 0;
+			long rank = (long) Math.ceil(quantile * this.count);
+			long seen = 0;
+			for(int i = 0; i < this.counts.length; i++) {
+				seen += this.counts[i];
+				if(seen >= rank && this.counts[i] > 0)
+					return Math.min(upperBound(i), this.max);
+			}
+			return this.max;
+		}
+		
+		/**
+		 * Returns how many recorded values are less than or equal to the provided value
+		 * Values sharing a bucket with the bound are only counted if the whole bucket is below it.
+		 *
+		 * @param value
+		 * @return
+		 */
+		public long countAtOrBelow(long value) {
+			long count = 0;
+			for(int i = 0; i < this.counts.length && upperBound(i) <= value; i++)
+				count += this.counts[i];
+			return count;
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package com.express4j.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+
+public interface MetricsExporter {
+	/**
+	 * Returns the Content-Type of the exported text
+	 *
+	 * @return
+	 */
+	String getContentType();
+	
+	/**
+	 * Writes every route's metrics in this exporter's format
+	 *
+	 * @param registry
+	 * @param writer
+	 * @throws IOException
+	 */
+	void export(MetricsRegistry registry, Writer writer) throws IOException;
+}
@@ -0,0 +1,106 @@
+package com.express4j.metrics;
+
+import com.express4j.events.Request;
+import com.express4j.routing.Route;
+import com.express4j.routing.RouteMatch;
+import com.express4j.service.HttpRequest;
+import com.express4j.service.HttpResponse;
+
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the metrics of every route, keyed by request method and route pattern.
+ * Requests are labelled with the pattern they were routed to rather than their path, so the number of series stays bounded.
+ */
+public class MetricsRegistry {
+	/**
+	 * The route label used for requests that matched no route
+	 */
+	public static final String UNMATCHED = "unmatched";
+	
+	private final ConcurrentHashMap<String, RouteMetrics> routes = new ConcurrentHashMap<String, RouteMetrics>();
+	
+	/**
+	 * Returns the metrics for a method and route pattern, creating them on first use
+	 *
+	 * @param method
+	 * @param route
+	 * @return
+	 */
+	public RouteMetrics get(String method, String route) {
+		String key = method + ' ' + route;
+		RouteMetrics metrics = this.routes.get(key);
+		if(metrics == null) {
+			RouteMetrics created = new RouteMetrics(method, route);
+			metrics = this.routes.putIfAbsent(key, created);
+			if(metrics == null)
+				metrics = created;
+		}
+		return metrics;
+	}
+	
+	/**
+	 * Returns the metrics for a request given the routes it matched
+	 * Requests are labelled with the last non-prefix route they matched, so middleware mounted with <code>use()</code> does not count as the endpoint.
+	 *
+	 * @param method
+	 * @param matches
+	 * @return
+	 */
+	public RouteMetrics get(String method, RouteMatch[] matches) {
+		Route route = null;
+		for(RouteMatch match : matches)
+			if(route == null || route.isPrefix() || !match.getRoute().isPrefix())
+				route = match.getRoute();
+		return this.get(method, route != null ? route.getPath() : UNMATCHED);
+	}
+	
+	/**
+	 * Returns the metrics of every route, sorted by route pattern then method
+	 *
+	 * @return
+	 */
+	public List<RouteMetrics> getRoutes() {
+		List<RouteMetrics> routes = new ArrayList<RouteMetrics>(this.routes.values());
+		Collections.sort(routes, new Comparator<RouteMetrics>() {
+			@Override
+			public int compare(RouteMetrics a, RouteMetrics b) {
+				int compare = a.getRoute().compareTo(b.getRoute());
+				return compare != 0 ? compare : a.getMethod().compareTo(b.getMethod());
+			}
+		});
+		return routes;
+	}
+	
+	/**
+	 * Forgets every recorded metric
+	 */
+	public void clear() {
+		this.routes.clear();
+	}
+	
+	/**
+	 * Returns a handler answering with every route's metrics in the exporter's format
+	 * Example: <code>app.get("/metrics", app.getMetrics().endpoint(new PrometheusExporter()))</code>
+	 *
+	 * @param exporter
+	 * @return
+	 */
+	public Request endpoint(final MetricsExporter exporter) {
+		return new Request() {
+			@Override
+			public void handle(HttpRequest req, HttpResponse res) throws Exception {
+				res.set("Content-Type", exporter.getContentType());
+				res.set("Cache-Control", "no-store");
+				Writer writer = res.writer();
+				exporter.export(MetricsRegistry.this, writer);
+				writer.close();
+			}
+		};
+	}
+}
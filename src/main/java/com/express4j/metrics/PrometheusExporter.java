@@ -0,0 +1,71 @@
+package com.express4j.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Exports metrics in the Prometheus text exposition format.
+ * Latencies are exported in seconds as a histogram with fixed bucket bounds, derived from the finer buckets kept by each route.
+ */
+public class PrometheusExporter implements MetricsExporter {
+	private static final String[] BOUNDS = { "0.0005", "0.001", "0.0025", "0.005", "0.01", "0.025", "0.05", "0.1", "0.25", "0.5", "1", "2.5", "5", "10" };
+	
+	private String prefix;
+	
+	public PrometheusExporter() { this("express4j"); }
+	public PrometheusExporter(String prefix) {
+		this.prefix = prefix;
+	}
+	
+	@Override
+	public String getContentType() { return "text/plain; version=0.0.4; charset=utf-8"; }
+	
+	@Override
+	public void export(MetricsRegistry registry, Writer writer) throws IOException {
+		List<RouteMetrics> routes = registry.getRoutes();
+		
+		this.header(writer, "requests_total", "counter", "Requests handled, by route, method and status.");
+		for(RouteMetrics route : routes) {
+			long[] statuses = route.getStatusCounts();
+			for(int status = 100; status < statuses.length; status++)
+				if(statuses[status] > 0)
+					this.sample(writer, "requests_total", route, "status=\"" + status + "\"", Long.toString(statuses[status]));
+		}
+		
+		this.header(writer, "request_errors_total", "counter", "Requests ended by an exception, by route and method.");
+		for(RouteMetrics route : routes)
+			this.sample(writer, "request_errors_total", route, null, Long.toString(route.getErrors()));
+		
+		this.header(writer, "requests_in_flight", "gauge", "Requests currently being handled, by route and method.");
+		for(RouteMetrics route : routes)
+			this.sample(writer, "requests_in_flight", route, null, Long.toString(route.getInFlight()));
+		
+		this.header(writer, "request_duration_seconds", "histogram", "Time spent handling requests, by route and method.");
+		for(RouteMetrics route : routes) {
+			Histogram.Snapshot snapshot = route.getLatency().snapshot();
+			for(String bound : BOUNDS)
+				this.sample(writer, "request_duration_seconds_bucket", route, "le=\"" + bound + "\"", Long.toString(snapshot.countAtOrBelow((long) (Double.parseDouble(bound) * 1e9))));
+			this.sample(writer, "request_duration_seconds_bucket", route, "le=\"+Inf\"", Long.toString(snapshot.getCount()));
+			this.sample(writer, "request_duration_seconds_sum", route, null, Double.toString(snapshot.getSum() / 1e9));
+			this.sample(writer, "request_duration_seconds_count", route, null, Long.toString(snapshot.getCount()));
+		}
+		writer.flush();
+	}
+	
+	private void header(Writer writer, String name, String type, String help) throws IOException {
+		writer.write("# HELP " + this.prefix + "_" + name + " " + help + "\n");
+		writer.write("# TYPE " + this.prefix + "_" + name + " " + type + "\n");
+	}
+	
+	private void sample(Writer writer, String name, RouteMetrics route, String extra, String value) throws IOException {
+		writer.write(this.prefix + "_" + name + "{method=\"" + escape(route.getMethod()) + "\",route=\"" + escape(route.getRoute()) + "\"");
+		if(extra != null)
+			writer.write("," + extra);
+		writer.write("} " + value + "\n");
+	}
+	
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+}
@@ -0,0 +1,75 @@
+package com.express4j.metrics;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters, an in-flight gauge and a latency histogram for one route pattern and request method.
+ */
+public class RouteMetrics {
+	@Getter private final String method;
+	@Getter private final String route;
+	@Getter private final Histogram latency = new Histogram();
+	
+	private final AtomicLongArray statuses = new AtomicLongArray(600);
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+	private final LongAdder inFlight = new LongAdder();
+	
+	public RouteMetrics(String method, String route) {
+		this.method = method;
+		this.route = route;
+	}
+	
+	/**
+	 * Records the start of a request
+	 */
+	public void begin() {
+		this.inFlight.increment();
+	}
+	
+	/**
+	 * Records the end of a request
+	 *
+	 * @param status
+	 * @param nanos
+	 * @param failed <code>true</code> if the request ended with an exception
+	 */
+	public void end(int status, long nanos, boolean failed) {
+		this.inFlight.decrement();
+		this.requests.increment();
+		if(failed)
+			this.errors.increment();
+		if(status >= 100 && status < 600)
+			this.statuses.incrementAndGet(status);
+		this.latency.record(nanos);
+	}
+	
+	public long getRequests() { return this.requests.sum(); }
+	public long getErrors() { return this.errors.sum(); }
+	public long getInFlight() { return this.inFlight.sum(); }
+	
+	/**
+	 * Returns how many responses were sent with the provided status
+	 *
+	 * @param status
+	 * @return
+	 */
+	public long getStatusCount(int status) {
+		return status >= 100 && status < 600 ? this.statuses.get(status) : 0;
+	}
+	
+	/**
+	 * Returns an array indexed by status code of how many responses were sent with each
+	 *
+	 * @return
+	 */
+	public long[] getStatusCounts() {
+		long[] counts = new long[600];
+		for(int i = 100; i < counts.length; i++)
+			counts[i] = this.statuses.get(i);
+		return counts;
+	}
+}
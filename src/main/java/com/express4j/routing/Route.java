@@ -0,0 +1,74 @@
+package com.express4j.routing;
+
+import com.express4j.events.AsyncRequest;
+import com.express4j.events.Chain;
+import com.express4j.events.Middleware;
+import com.express4j.events.Request;
+import com.express4j.service.HttpRequest;
+import com.express4j.service.HttpResponse;
+import com.express4j.service.obj.Method;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+@Getter
+public class Route {
+	private Method method;
+	private String path;
+	private boolean prefix;
+	private int order;
+	private Middleware[] handlers;
+	private String[] params;
+	
+	public Route(Method method, String path, boolean prefix, int order, Middleware[] handlers) {
+		this.method = method;
+		this.path = path;
+		this.prefix = prefix;
+		this.order = order;
+		this.handlers = handlers;
+		
+		List<String> params = new ArrayList<String>();
+		for(String segment : Router.split(path))
+			if(segment.startsWith(":"))
+				params.add(segment.substring(1));
+		this.params = params.toArray(new String[params.size()]);
+	}
+	
+	/**
+	 * Wraps a Request so it continues to the next handler when it returns without sending a response
+	 *
+	 * @param handler
+	 * @return
+	 */
+	public static Middleware wrap(final Request handler) {
+		return new Middleware() {
+			@Override
+			public void handle(HttpRequest req, HttpResponse res, Chain chain) throws Exception {
+				handler.handle(req, res);
+				if(res.isOpen())
+					chain.next();
+			}
+		};
+	}
+	
+	/**
+	 * Wraps an AsyncRequest so the chain is suspended until its stage completes, then continues if no response has been sent
+	 *
+	 * @param handler
+	 * @return
+	 */
+	public static Middleware async(final AsyncRequest handler) {
+		return new Middleware() {
+			@Override
+			public void handle(HttpRequest req, HttpResponse res, Chain chain) throws Exception {
+				CompletionStage<?> stage = handler.handle(req, res);
+				if(stage != null)
+					chain.await(stage);
+				else if(res.isOpen())
+					chain.next();
+			}
+		};
+	}
+}
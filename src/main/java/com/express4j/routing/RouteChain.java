@@ -0,0 +1,129 @@
+package com.express4j.routing;
+
+import com.express4j.events.Chain;
+import com.express4j.service.HttpRequest;
+import com.express4j.service.HttpResponse;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Walks the handlers of every matched route in the order they were registered
+ * Handlers may suspend the chain on a CompletionStage, the chain then continues on the thread completing it.
+ */
+public class RouteChain implements Chain {
+	private RouteMatch[] matches;
+	private HttpRequest req;
+	private HttpResponse res;
+	
+	private int route = 0;
+	private int handler = 0;
+	private Listener listener;
+	private volatile Suspension suspension;
+	
+	public RouteChain(RouteMatch[] matches, HttpRequest req, HttpResponse res) {
+		this.matches = matches;
+		this.req = req;
+		this.res = res;
+	}
+	
+	/**
+	 * Runs the chain from its first handler, the listener is called once when it ends
+	 * This returns as soon as the chain ends or is suspended, the listener may be called later from another thread.
+	 *
+	 * @param listener
+	 */
+	public void start(Listener listener) {
+		this.listener = listener;
+		this.drive(null, true);
+	}
+	
+	@Override
+	public void next() throws Exception {
+		while(this.route < this.matches.length) {
+			RouteMatch match = this.matches[this.route];
+			if(this.handler < match.getRoute().getHandlers().length) {
+				this.req.params = match.getParams();
+				match.getRoute().getHandlers()[this.handler++].handle(this.req, this.res, this);
+				return;
+			}
+			this.route++;
+			this.handler = 0;
+		}
+	}
+	
+	@Override
+	public void await(CompletionStage<?> stage) {
+		if(this.listener == null)
+			throw new IllegalStateException("Only chains run with RouteChain.start() can be suspended.");
+		final Suspension suspension = new Suspension();
+		this.suspension = suspension;
+		stage.whenComplete(new BiConsumer<Object, Throwable>() {
+			@Override
+			public void accept(Object result, Throwable error) {
+				suspension.error = unwrap(error);
+				if(suspension.parties.decrementAndGet() == 0)
+					RouteChain.this.drive(suspension.error, false);
+			}
+		});
+	}
+	
+	/**
+	 * Runs handlers until the chain ends or is suspended on a stage that has not completed yet
+	 *
+	 * @param error
+	 * @param first
+	 */
+	private void drive(Throwable error, boolean first) {
+		while(true) {
+			this.suspension = null;
+			if(error == null)
+				try {
+					if(first || this.res.isOpen())
+						this.next();
+				} catch(Exception e) {
+					error = e;
+				}
+			first = false;
+			
+			Suspension suspension = this.suspension;
+			if(suspension == null) {
+				this.listener.finish(error);
+				return;
+			}
+			if(error != null) {
+				// The handler failed after suspending, whatever its stage completes with is ignored
+				suspension.parties.set(-1);
+				this.listener.finish(error);
+				return;
+			}
+			// Whichever of this thread and the stage gets here last carries on with the chain
+			if(suspension.parties.decrementAndGet() != 0)
+				return;
+			error = suspension.error;
+		}
+	}
+	
+	private static Throwable unwrap(Throwable error) {
+		while((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null)
+			error = error.getCause();
+		return error;
+	}
+	
+	public interface Listener {
+		/**
+		 * Called once when the chain ends, with the error that ended it or <code>null</code>
+		 *
+		 * @param error
+		 */
+		void finish(Throwable error);
+	}
+	
+	private static class Suspension {
+		private AtomicInteger parties = new AtomicInteger(2);
+		private volatile Throwable error;
+	}
+}
@@ -0,0 +1,30 @@
+package com.express4j.routing;
+
+import lombok.Getter;
+
+import java.util.HashMap;
+
+public class RouteMatch {
+	@Getter private Route route;
+	private String[] values;
+	private HashMap<String, String> params;
+	
+	public RouteMatch(Route route, String[] values) {
+		this.route = route;
+		this.values = values;
+	}
+	
+	/**
+	 * Returns the parameters captured for this route, built on first access
+	 *
+	 * @return
+	 */
+	public HashMap<String, String> getParams() {
+		if(this.params == null) {
+			this.params = new HashMap<String, String>();
+			for(int i = 0; i < this.route.getParams().length; i++)
+				this.params.put(this.route.getParams()[i], this.values[i]);
+		}
+		return this.params;
+	}
+}
@@ -0,0 +1,67 @@
+package com.express4j.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.regex.Pattern;
+
+class RouteNode {
+	static final Route[] EMPTY = new Route[0];
+	
+	final HashMap<String, RouteNode> literals = new HashMap<String, RouteNode>();
+	final List<RouteNode> patterns = new ArrayList<RouteNode>();
+	RouteNode param;
+	
+	Pattern pattern;
+	Route[] routes = EMPTY;
+	Route[] prefixes = EMPTY;
+	
+	RouteNode() {}
+	RouteNode(Pattern pattern) {
+		this.pattern = pattern;
+	}
+	
+	/**
+	 * Returns the child node for the provided route segment, creating it if needed
+	 *
+	 * @param segment
+	 * @return
+	 */
+	RouteNode child(String segment) {
+		if(segment.startsWith(":")) {
+			if(this.param == null)
+				this.param = new RouteNode();
+			return this.param;
+		}
+		if(Router.isPattern(segment)) {
+			for(RouteNode node : this.patterns)
+				if(node.pattern.pattern().equals(segment))
+					return node;
+			RouteNode node = new RouteNode(Pattern.compile(segment));
+			this.patterns.add(node);
+			return node;
+		}
+		RouteNode node = this.literals.get(segment);
+		if(node == null) {
+			node = new RouteNode();
+			this.literals.put(segment, node);
+		}
+		return node;
+	}
+	
+	/**
+	 * Appends a route to this node, keeping the arrays read by the dispatcher immutable
+	 *
+	 * @param route
+	 */
+	void add(Route route) {
+		if(route.isPrefix()) {
+			this.prefixes = Arrays.copyOf(this.prefixes, this.prefixes.length + 1);
+			this.prefixes[this.prefixes.length - 1] = route;
+		} else {
+			this.routes = Arrays.copyOf(this.routes, this.routes.length + 1);
+			this.routes[this.routes.length - 1] = route;
+		}
+	}
+}
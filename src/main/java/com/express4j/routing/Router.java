@@ -0,0 +1,153 @@
+package com.express4j.routing;
+
+import com.express4j.events.Middleware;
+import com.express4j.service.obj.Method;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+
+/**
+ * Segment trie of every registered route, compiled when the route is registered.
+ * Literal segments are looked up by hash, <code>:param</code> segments capture any non-empty segment made of
+ * URL-safe characters and segments containing regex characters are matched against a precompiled Pattern.
+ */
+public class Router {
+	private static final String PATTERN_CHARS = "*+?[](){}|\\^$";
+	private static final RouteMatch[] NONE = new RouteMatch[0];
+	
+	private EnumMap<Method, RouteNode> roots;
+	private int depth;
+	private int order;
+	
+	public Router() {
+		this.roots = new EnumMap<Method, RouteNode>(Method.class);
+	}
+	
+	/**
+	 * Registers a route. Routes registered more than once keep every handler, in the order they were added.
+	 * Prefix routes also match every path below their own, which is how middleware is mounted.
+	 *
+	 * @param method
+	 * @param path
+	 * @param prefix
+	 * @param handlers
+	 * @return
+	 */
+	public synchronized Route add(Method method, String path, boolean prefix, Middleware... handlers) {
+		if(prefix && path.endsWith("/"))
+			path = path.substring(0, path.length() - 1);
+		List<String> segments = path.isEmpty() ? new ArrayList<String>() : split(path);
+		Route route = new Route(method, path.isEmpty() ? "/" : path, prefix, this.order++, handlers.clone());
+		for(Method m : Method.values()) {
+			if(m == Method.ALL || (method != Method.ALL && method != m))
+				continue;
+			RouteNode node = this.roots.get(m);
+			if(node == null) {
+				node = new RouteNode();
+				this.roots.put(m, node);
+			}
+			for(String segment : segments)
+				node = node.child(segment);
+			node.add(route);
+		}
+		this.depth = Math.max(this.depth, segments.size());
+		return route;
+	}
+	
+	/**
+	 * Returns every route matching the provided request path, in the order they were registered
+	 *
+	 * @param method
+	 * @param path
+	 * @return
+	 */
+	public RouteMatch[] match(Method method, String path) {
+		RouteNode root = this.roots.get(method);
+		if(root == null || !path.startsWith("/"))
+			return NONE;
+		List<RouteMatch> matches = new ArrayList<RouteMatch>(4);
+		String[] values = new String[this.depth];
+		for(Route route : root.prefixes)
+			matches.add(new RouteMatch(route, values));
+		this.walk(root, path, 1, values, 0, matches);
+		
+		RouteMatch[] sorted = matches.toArray(new RouteMatch[matches.size()]);
+		for(int i = 1; i < sorted.length; i++) {
+			RouteMatch match = sorted[i];
+			int j = i - 1;
+			for(; j >= 0 && sorted[j].getRoute().getOrder() > match.getRoute().getOrder(); j--)
+				sorted[j + 1] = sorted[j];
+			sorted[j + 1] = match;
+		}
+		return sorted;
+	}
+	
+	private void walk(RouteNode node, String path, int start, String[] values, int captured, List<RouteMatch> matches) {
+		int end = path.indexOf('/', start);
+		boolean last = end < 0;
+		if(last)
+			end = path.length();
+		String segment = path.substring(start, end);
+		
+		RouteNode next = node.literals.get(segment);
+		if(next != null)
+			this.visit(next, path, end, last, values, captured, matches);
+		if(node.param != null && isParam(segment)) {
+			values[captured] = segment;
+			this.visit(node.param, path, end, last, values, captured + 1, matches);
+		}
+		for(RouteNode pattern : node.patterns)
+			if(pattern.pattern.matcher(segment).matches())
+				this.visit(pattern, path, end, last, values, captured, matches);
+	}
+	
+	private void visit(RouteNode node, String path, int end, boolean last, String[] values, int captured, List<RouteMatch> matches) {
+		String[] snapshot = null;
+		if(node.prefixes.length > 0 || (last && node.routes.length > 0))
+			snapshot = captured > 0 ? values.clone() : values;
+		for(Route route : node.prefixes)
+			matches.add(new RouteMatch(route, snapshot));
+		if(last) {
+			for(Route route : node.routes)
+				matches.add(new RouteMatch(route, snapshot));
+		} else
+			this.walk(node, path, end + 1, values, captured, matches);
+	}
+	
+	/**
+	 * Splits a path into its segments, keeping empty segments so <code>/</code> and <code>/a/</code> remain distinct
+	 *
+	 * @param path
+	 * @return
+	 */
+	static List<String> split(String path) {
+		List<String> segments = new ArrayList<String>();
+		int start = path.startsWith("/") ? 1 : 0;
+		int end;
+		while((end = path.indexOf('/', start)) >= 0) {
+			segments.add(path.substring(start, end));
+			start = end + 1;
+		}
+		segments.add(path.substring(start));
+		return segments;
+	}
+	
+	static boolean isPattern(String segment) {
+		for(int i = 0; i < segment.length(); i++)
+			if(PATTERN_CHARS.indexOf(segment.charAt(i)) >= 0)
+				return true;
+		return false;
+	}
+	
+	private static boolean isParam(String segment) {
+		if(segment.isEmpty())
+			return false;
+		for(int i = 0; i < segment.length(); i++) {
+			char c = segment.charAt(i);
+			if(!((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || "-_.+~%".indexOf(c) >= 0))
+				return false;
+		}
+		return true;
+	}
+}
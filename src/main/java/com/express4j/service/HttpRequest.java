@@ -1,28 +1,73 @@
 package com.express4j.service;
 
 import com.express4j.Express4J;
+import com.express4j.events.Chain;
+import com.express4j.events.Middleware;
+import com.express4j.exception.MalformedBodyException;
+import com.express4j.exception.PayloadTooLargeException;
+import com.express4j.form.MultipartParser;
+import com.express4j.form.Part;
 import com.express4j.service.obj.ContentType;
 import com.express4j.service.obj.Cookie;
+import com.express4j.service.obj.HeaderIndex;
 import com.express4j.service.obj.Method;
-import com.sun.net.httpserver.HttpExchange;
-import org.apache.commons.io.IOUtils;
+import com.express4j.transport.Exchange;
+import com.express4j.utils.BufferPool;
+import com.express4j.utils.URLUtils;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.MalformedJsonException;
 
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map.Entry;
+import java.util.Locale;
+import java.util.Map;
 
 public class HttpRequest {
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+	
 	private Express4J app;
-	private HttpExchange exchange;
+	private Exchange exchange;
+	
+	private HeaderIndex headers;
+	private String path;
+	private LinkedHashMap<String, List<String>> query;
+	private HashMap<String, String> queryFirst;
+	private HashMap<String, Cookie> cookies;
+	private long maxBodySize;
+	private byte[] body;
+	private LinkedHashMap<String, List<String>> form;
+	private List<Part> files;
+	private List<MultipartParser> parsers;
+	private String hostname;
+	private Long contentLength;
+	private Map<String, Float> accept;
+	private Map<String, Float> acceptEncoding;
+	private Map<String, Float> acceptLanguage;
 	
 	public HashMap<String, String> params;
 	
-	public HttpRequest(Express4J app, HttpExchange exchange) {
+	public HttpRequest(Express4J app, Exchange exchange) {
 		this.app = app;
 		this.exchange = exchange;
 		
 		this.params = new HashMap<String, String>();
+		this.maxBodySize = app.getMaxBodySize();
+		this.parsers = new ArrayList<MultipartParser>(0);
 	}
 	
 	/**
@@ -31,37 +76,320 @@ public class HttpRequest {
 	 * @return
 	 */
 	public HashMap<String, Cookie> cookies() {
-		HashMap<String, Cookie> cookies = new HashMap<String, Cookie>();
-		for(String header : this.get("cookie")) {
-			String[] ckies = header.split("; ");
-			for(String ckie : ckies) {
-				String[] c = ckie.split("=");
-				cookies.put(c[0], new Cookie(c[0], c[1]));
-			}
+		if(this.cookies == null) {
+			HashMap<String, Cookie> cookies = new HashMap<String, Cookie>();
+			for(String header : this.get("Cookie"))
+				URLUtils.parseCookies(header, cookies);
+			this.cookies = cookies;
 		}
-		return cookies;
+		return this.cookies;
+	}
+	
+	/**
+	 * Returns the cookie with the provided name, or <code>null</code> if it was not sent
+	 *
+	 * @param name
+	 * @return
+	 */
+	public Cookie getCookie(String name) {
+		return this.cookies().get(name);
 	}
 	
 	/**
 	 * Returns the body that was sent to the server with the request
 	 *
 	 * @return
+	 * @throws IOException
+	 * @throws PayloadTooLargeException
 	 */
-	public String getBody() { return this.getBody(null); }
+	public String getBody() throws IOException, PayloadTooLargeException { return this.getBody(null); }
 	
 	/**
 	 * Returns the body that was sent to the server with the request
+	 * When no encoding is provided, the charset of the Content-Type header is used, or UTF-8 if there is none.
 	 *
 	 * @param encoding
 	 * @return
+	 * @throws IOException
+	 * @throws PayloadTooLargeException
+	 */
+	public String getBody(String encoding) throws IOException, PayloadTooLargeException {
+		return new String(this.bodyBytes(), encoding != null ? encoding : this.getCharset());
+	}
+	
+	/**
+	 * Returns the charset of the request body from the Content-Type header, UTF-8 if none was sent
+	 *
+	 * @return
 	 */
-	public String getBody(String encoding) {
+	public String getCharset() {
+		String type = this.headers().first("Content-Type");
+		int charset = type != null ? type.toLowerCase().indexOf("charset=") : -1;
+		return charset >= 0 ? type.substring(charset + 8).split(";")[0].trim().replace("\"", "") : "UTF-8";
+	}
+	
+	/**
+	 * Parses the JSON request body into an object of the provided class
+	 * The body is read straight from the request stream with the application's Gson instance.
+	 *
+	 * @param type
+	 * @return
+	 * @throws IOException
+	 * @throws MalformedBodyException
+	 * @throws PayloadTooLargeException
+	 */
+	public <T> T json(Class<T> type) throws IOException, MalformedBodyException, PayloadTooLargeException {
+		return type.cast(this.json((Type) type));
+	}
+	
+	/**
+	 * Parses the JSON request body into an object of the provided type
+	 * Use for generic types such as <code>new TypeToken&lt;List&lt;User&gt;&gt;(){}.getType()</code>.
+	 *
+	 * @param type
+	 * @return
+	 * @throws IOException
+	 * @throws MalformedBodyException
+	 * @throws PayloadTooLargeException
+	 */
+	public <T> T json(Type type) throws IOException, MalformedBodyException, PayloadTooLargeException {
+		JsonReader reader = new JsonReader(new InputStreamReader(this.getInputStream(), this.getCharset()));
 		try {
-			return IOUtils.toString(this.exchange.getRequestBody(), encoding);
-		} catch(Exception e) {
-			e.printStackTrace();
+			return this.app.getGson().fromJson(reader, type);
+		} catch(JsonParseException e) {
+			// Gson wraps read errors, only malformed input should be answered with a 400
+			if(e.getCause() instanceof IOException && !(e.getCause() instanceof MalformedJsonException) && !(e.getCause() instanceof EOFException))
+				throw (IOException) e.getCause();
+			throw new MalformedBodyException("Request body is not valid JSON: " + e.getMessage());
+		} finally {
+			reader.close();
 		}
-		return null;
+	}
+	
+	/**
+	 * Returns the body that was sent to the server with the request
+	 * The body is read once, bodies larger than <code>HttpRequest.getMaxBodySize()</code> are rejected before they are buffered.
+	 * Memory grows with the bytes actually received, never with the Content-Length the client announced.
+	 *
+	 * @return
+	 * @throws IOException
+	 * @throws PayloadTooLargeException
+	 */
+	public byte[] bodyBytes() throws IOException, PayloadTooLargeException {
+		if(this.body == null) {
+			long length = this.getContentLength();
+			if(length > MAX_ARRAY_SIZE)
+				throw new PayloadTooLargeException("Request body of " + length + " bytes is too large to be buffered, use HttpRequest.getInputStream() instead.");
+			long limit = length >= 0 ? length : MAX_ARRAY_SIZE;
+			InputStream in = this.getInputStream();
+			byte[] buffer = BufferPool.SHARED.acquire();
+			try {
+				byte[] body = buffer;
+				int read = 0;
+				int count;
+				while(read < limit) {
+					if(read == body.length)
+						body = Arrays.copyOf(body, (int) Math.min(limit, body.length * 2L));
+					if((count = in.read(body, read, body.length - read)) < 0)
+						break;
+					read += count;
+				}
+				if(length < 0 && read == MAX_ARRAY_SIZE && in.read() >= 0)
+					throw new PayloadTooLargeException("Request body is too large to be buffered, use HttpRequest.getInputStream() instead.");
+				this.body = body != buffer && read == body.length ? body : Arrays.copyOf(body, read);
+			} finally {
+				BufferPool.SHARED.release(buffer);
+			}
+			in.close();
+		}
+		return this.body;
+	}
+	
+	/**
+	 * Returns the body that was sent to the server with the request, wrapped in a ByteBuffer
+	 *
+	 * @return
+	 * @throws IOException
+	 * @throws PayloadTooLargeException
+	 */
+	public ByteBuffer bodyBuffer() throws IOException, PayloadTooLargeException {
+		return ByteBuffer.wrap(this.bodyBytes());
+	}
+	
+	/**
+	 * Returns a stream of the body that was sent to the server with the request, without buffering it
+	 * Reading past <code>HttpRequest.getMaxBodySize()</code> bytes throws a PayloadTooLargeException.
+	 *
+	 * @return
+	 * @throws PayloadTooLargeException
+	 */
+	public InputStream getInputStream() throws PayloadTooLargeException {
+		if(this.body != null)
+			return new ByteArrayInputStream(this.body);
+		final long max = this.maxBodySize;
+		if(max >= 0 && this.getContentLength() > max)
+			throw new PayloadTooLargeException("Request body of " + this.getContentLength() + " bytes exceeds the limit of " + max + " bytes.");
+		if(max < 0)
+			return this.exchange.getRequestBody();
+		return new FilterInputStream(this.exchange.getRequestBody()) {
+			private long read = 0;
+			
+			@Override
+			public int read() throws IOException {
+				int b = super.read();
+				if(b >= 0)
+					this.count(1);
+				return b;
+			}
+			
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				int count = super.read(b, off, len);
+				if(count > 0)
+					this.count(count);
+				return count;
+			}
+			
+			private void count(long count) throws PayloadTooLargeException {
+				this.read += count;
+				if(this.read > max)
+					throw new PayloadTooLargeException("Request body exceeds the limit of " + max + " bytes.");
+			}
+		};
+	}
+	
+	/**
+	 * Returns a channel of the body that was sent to the server with the request, without buffering it
+	 *
+	 * @return
+	 * @throws PayloadTooLargeException
+	 */
+	public ReadableByteChannel getChannel() throws PayloadTooLargeException {
+		return Channels.newChannel(this.getInputStream());
+	}
+	
+	/**
+	 * Returns the largest body in bytes this request will accept, or -1 if there is no limit
+	 *
+	 * @return
+	 */
+	public long getMaxBodySize() { return this.maxBodySize; }
+	
+	/**
+	 * Sets the largest body in bytes this request will accept, -1 for no limit
+	 * Must be called before the body is read, usually from a middleware such as <code>HttpRequest.limit()</code>.
+	 *
+	 * @param maxBodySize
+	 * @return
+	 */
+	public HttpRequest setMaxBodySize(long maxBodySize) {
+		this.maxBodySize = maxBodySize;
+		return this;
+	}
+	
+	/**
+	 * Creates a middleware that sets the largest body in bytes accepted by the requests it handles
+	 * </br></br>
+	 * Example: <code>app.post("/upload", HttpRequest.limit(100 << 20), handler)</code>
+	 *
+	 * @param maxBodySize
+	 * @return
+	 */
+	public static Middleware limit(final long maxBodySize) {
+		return new Middleware() {
+			@Override
+			public void handle(HttpRequest req, HttpResponse res, Chain chain) throws Exception {
+				req.setMaxBodySize(maxBodySize);
+				chain.next();
+			}
+		};
+	}
+	
+	/**
+	 * Returns a streaming parser over a multipart/form-data body, reading one part at a time
+	 * Temporary files created for large parts are deleted once the request has been handled.
+	 *
+	 * @return
+	 * @throws IOException
+	 * @throws MalformedBodyException
+	 * @throws PayloadTooLargeException
+	 */
+	public MultipartParser parts() throws IOException, MalformedBodyException, PayloadTooLargeException {
+		String boundary = MultipartParser.getBoundary(this.headers().first("Content-Type"));
+		if(boundary == null)
+			throw new MalformedBodyException("Request body is not multipart/form-data.");
+		MultipartParser parser = new MultipartParser(this.getInputStream(), boundary, this.app.getForm(), this.app.getLog());
+		this.parsers.add(parser);
+		return parser;
+	}
+	
+	/**
+	 * Returns the fields of an application/x-www-form-urlencoded or multipart/form-data body, parsed once
+	 * Files uploaded in a multipart body are available from <code>HttpRequest.files()</code>.
+	 *
+	 * @return
+	 * @throws IOException
+	 * @throws MalformedBodyException
+	 * @throws PayloadTooLargeException
+	 */
+	public Map<String, List<String>> form() throws IOException, MalformedBodyException, PayloadTooLargeException {
+		if(this.form == null) {
+			LinkedHashMap<String, List<String>> form = new LinkedHashMap<String, List<String>>();
+			List<Part> files = new ArrayList<Part>();
+			String type = this.headers().first("Content-Type");
+			type = type != null ? type.toLowerCase() : "";
+			if(type.startsWith("application/x-www-form-urlencoded"))
+				URLUtils.parseQuery(this.getBody(), form);
+			else if(type.startsWith("multipart/form-data"))
+				for(Part part : this.parts().readAll()) {
+					if(part.isFile()) {
+						files.add(part);
+						continue;
+					}
+					List<String> values = form.get(part.getName());
+					if(values == null) {
+						values = new ArrayList<String>(1);
+						form.put(part.getName(), values);
+					}
+					values.add(part.getString());
+				}
+			this.form = form;
+			this.files = files;
+		}
+		return this.form;
+	}
+	
+	/**
+	 * Returns the first value of the provided form field, or <code>null</code> if it was not sent
+	 *
+	 * @param key
+	 * @return
+	 * @throws IOException
+	 */
+	public String getForm(String key) throws IOException {
+		List<String> values = this.form().get(key);
+		return values != null && !values.isEmpty() ? values.get(0) : null;
+	}
+	
+	/**
+	 * Returns the files uploaded in a multipart/form-data body
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	public List<Part> files() throws IOException {
+		this.form();
+		return this.files;
+	}
+	
+	/**
+	 * Releases the resources held by this request, such as temporary upload files
+	 * Called by the Express4J service once the request has been handled.
+	 */
+	public void close() {
+		for(MultipartParser parser : this.parsers)
+			parser.close();
+		this.parsers.clear();
 	}
 	
 	/**
@@ -70,7 +398,7 @@ public class HttpRequest {
 	 * @return
 	 */
 	public Method getMethod() {
-		return Method.valueOf(this.exchange.getRequestMethod());
+		return Method.fromString(this.exchange.getRequestMethod());
 	}
 	
 	/**
@@ -97,7 +425,38 @@ public class HttpRequest {
 	 * @return
 	 */
 	public String getHostname() {
-		return this.get("host").get(0).split(":")[0];
+		if(this.hostname == null) {
+			String host = this.headers().first("Host");
+			if(host == null || host.isEmpty())
+				host = this.exchange.getLocalAddress().getHostString();
+			else if(host.startsWith("[")) {
+				int end = host.indexOf(']');
+				host = end > 0 ? host.substring(0, end + 1) : host;
+			} else if(host.indexOf(':') >= 0)
+				host = host.substring(0, host.indexOf(':'));
+			this.hostname = host;
+		}
+		return this.hostname;
+	}
+	
+	/**
+	 * Returns the value of the Content-Length header, or -1 if it was not sent or is invalid
+	 *
+	 * @return
+	 */
+	public long getContentLength() {
+		if(this.contentLength == null) {
+			long length = -1;
+			String header = this.headers().first("Content-Length");
+			if(header != null)
+				try {
+					length = Long.parseLong(header.trim());
+				} catch(NumberFormatException e) {
+					length = -1;
+				}
+			this.contentLength = length < 0 ? -1 : length;
+		}
+		return this.contentLength;
 	}
 	
 	/**
@@ -106,7 +465,12 @@ public class HttpRequest {
 	 * @return
 	 */
 	public String getPath() {
-		return this.exchange.getRequestURI().toString().split("\\?")[0];
+		if(this.path == null) {
+			String url = this.getOriginalURL();
+			int query = url.indexOf('?');
+			this.path = query < 0 ? url : url.substring(0, query);
+		}
+		return this.path;
 	}
 	
 	/**
@@ -115,7 +479,7 @@ public class HttpRequest {
 	 * @return
 	 */
 	public String getOriginalURL() {
-		return this.exchange.getRequestURI().toString();
+		return this.exchange.getRequestURI();
 	}
 	
 	/**
@@ -140,20 +504,49 @@ public class HttpRequest {
 	
 	/**
 	 * Returns a HashMap of the GET parameters from <code>HttpRequest.getOriginalURL()</code>
+	 * Keys and values are percent-decoded. Only the first value of a repeated key is included, use <code>HttpRequest.getQueryAll()</code> for the others.
 	 *
 	 * @return
 	 */
 	public HashMap<String, String> getQuery() {
-		HashMap<String, String> params = new HashMap<String, String>();
-		String[] split = this.getOriginalURL().split("\\?");
-		if(split.length > 1)
-			for(String o : split[1].split("&")) {
-				String[] s = o.split("=");
-				if(s.length > 1)
-					if(o.contains("=")) params.put(s[0], s[1]);
-					else params.put(s[0], null);
-			}
-		return params;
+		if(this.queryFirst == null) {
+			HashMap<String, String> params = new HashMap<String, String>();
+			for(Map.Entry<String, List<String>> entry : this.queryAll().entrySet())
+				params.put(entry.getKey(), entry.getValue().get(0));
+			this.queryFirst = params;
+		}
+		return this.queryFirst;
+	}
+	
+	/**
+	 * Returns the first value of the provided GET parameter, or <code>null</code> if it was not sent
+	 *
+	 * @param key
+	 * @return
+	 */
+	public String getQuery(String key) {
+		List<String> values = this.queryAll().get(key);
+		return values != null ? values.get(0) : null;
+	}
+	
+	/**
+	 * Returns every value of the provided GET parameter in the order they were sent, or an empty list if it was not sent
+	 *
+	 * @param key
+	 * @return
+	 */
+	public List<String> getQueryAll(String key) {
+		List<String> values = this.queryAll().get(key);
+		return values != null ? Collections.unmodifiableList(values) : Collections.<String>emptyList();
+	}
+	
+	private LinkedHashMap<String, List<String>> queryAll() {
+		if(this.query == null) {
+			String url = this.getOriginalURL();
+			int start = url.indexOf('?');
+			this.query = start < 0 ? new LinkedHashMap<String, List<String>>() : URLUtils.parseQuery(url.substring(start + 1), new LinkedHashMap<String, List<String>>());
+		}
+		return this.query;
 	}
 	
 	/**
@@ -163,15 +556,9 @@ public class HttpRequest {
 	 * @return
 	 */
 	public boolean accepts(ContentType type) {
-		for(String header : this.get("Accept")) {
-			String[] types = header.split(",");
-			for(String s : types) {
-				s = s.split(";")[0];
-				if(type.toString().equalsIgnoreCase(s))
-					return true;
-			}
-		}
-		return false;
+		if(this.accept == null)
+			this.accept = parseQualities(this.get("Accept"));
+		return type.toString() != null && this.accept.getOrDefault(type.toString().toLowerCase(Locale.ROOT), 0f) > 0;
 	}
 	
 	/**
@@ -194,12 +581,12 @@ public class HttpRequest {
 	 * @return
 	 */
 	public boolean acceptsEncoding(String encoding) {
-		for(String s : this.get("Accept-Encoding")) {
-			String[] split = s.split(", ");
-			for(String o : split)
-				if(o.toLowerCase().equals(encoding.toLowerCase())) return true;
-		}
-		return false;
+		if(this.acceptEncoding == null)
+			this.acceptEncoding = parseQualities(this.get("Accept-Encoding"));
+		Float quality = this.acceptEncoding.get(encoding.toLowerCase(Locale.ROOT));
+		if(quality == null)
+			quality = this.acceptEncoding.getOrDefault("*", 0f);
+		return quality > 0;
 	}
 	
 	/**
@@ -222,12 +609,9 @@ public class HttpRequest {
 	 * @return
 	 */
 	public boolean acceptsLanguage(String lang) {
-		for(String s : this.get("Accept-Language")) {
-			String[] split = s.split(",");
-			for(String o : split)
-				if(o.toLowerCase().equals(lang.toLowerCase())) return true;
-		}
-		return false;
+		if(this.acceptLanguage == null)
+			this.acceptLanguage = parseQualities(this.get("Accept-Language"));
+		return this.acceptLanguage.getOrDefault(lang.toLowerCase(Locale.ROOT), 0f) > 0;
 	}
 	
 	/**
@@ -250,23 +634,69 @@ public class HttpRequest {
 	 * @return
 	 */
 	public List<String> get(String header) {
-		List<String> headers = new ArrayList<String>();
-		for(String key : this.getHeaders().keySet())
-			if(key.toLowerCase().equals(header.toLowerCase()))
-				for(String h : this.getHeaders().get(key))
-					headers.add(h);
-		return headers;
+		return this.headers().get(header);
+	}
+	
+	/**
+	 * Returns a case-insensitive, read-only view of the headers sent to the server
+	 *
+	 * @return
+	 */
+	public HeaderIndex headers() {
+		if(this.headers == null)
+			this.headers = new HeaderIndex(this.exchange.getRequestHeaders(), true);
+		return this.headers;
 	}
 	
 	/**
 	 * Returns a HashMap of all headers sent to the server
+	 * The map is a copy, prefer <code>HttpRequest.get()</code> or <code>HttpRequest.headers()</code> to read single headers.
 	 *
 	 * @return
 	 */
 	public HashMap<String, List<String>> getHeaders() {
-		HashMap<String, List<String>> headers = new HashMap<String, List<String>>();
-		for(Entry<String, List<String>> header : this.exchange.getRequestHeaders().entrySet())
-			headers.put(header.getKey(), header.getValue());
-		return headers;
+		return new HashMap<String, List<String>>(this.headers().asMap());
+	}
+	
+	/**
+	 * Parses a header made of comma separated values with optional <code>;q=</code> weights, such as Accept-Encoding
+	 * Values are lowercased and mapped to their weight, which is 1 when none is given.
+	 *
+	 * @param headers
+	 * @return
+	 */
+	private static Map<String, Float> parseQualities(List<String> headers) {
+		Map<String, Float> values = new HashMap<String, Float>();
+		for(String header : headers) {
+			int start = 0;
+			while(start < header.length()) {
+				int end = header.indexOf(',', start);
+				if(end < 0)
+					end = header.length();
+				int params = header.indexOf(';', start);
+				if(params < 0 || params > end)
+					params = end;
+				String value = header.substring(start, params).trim().toLowerCase(Locale.ROOT);
+				float quality = 1;
+				// Only the q parameter carries the weight, other media type parameters such as level are skipped
+				while(params < end) {
+					int next = header.indexOf(';', params + 1);
+					if(next < 0 || next > end)
+						next = end;
+					int equals = header.indexOf('=', params + 1);
+					if(equals >= 0 && equals < next && header.substring(params + 1, equals).trim().equalsIgnoreCase("q"))
+						try {
+							quality = Float.parseFloat(header.substring(equals + 1, next).trim());
+						} catch(NumberFormatException e) {
+							quality = 0;
+						}
+					params = next;
+				}
+				if(!value.isEmpty())
+					values.put(value, quality);
+				start = end + 1;
+			}
+		}
+		return values;
 	}
 }
@@ -1,31 +1,54 @@
 package com.express4j.service;
 
 import com.express4j.Express4J;
+import com.express4j.cache.StaticCache;
+import com.express4j.cache.StaticFile;
 import com.express4j.exception.FileRequiredException;
 import com.express4j.exception.InvalidCookieException;
 import com.express4j.exception.TraversalAttackPreventionException;
+import com.express4j.service.obj.ByteRange;
 import com.express4j.service.obj.Charset;
+import com.express4j.service.obj.CompressionSettings;
 import com.express4j.service.obj.ContentType;
 import com.express4j.service.obj.Cookie;
 import com.express4j.service.obj.CookieSettings;
+import com.express4j.service.obj.Method;
+import com.express4j.sse.SseStream;
+import com.express4j.template.Template;
+import com.express4j.transport.Exchange;
+import com.express4j.utils.BufferPool;
+import com.express4j.utils.CompressionUtils;
 import com.express4j.utils.DateUtils;
-import com.sun.net.httpserver.HttpExchange;
+import com.express4j.utils.MimeUtils;
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.stream.JsonWriter;
 
 import java.io.*;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 public class HttpResponse {
 	private Express4J app;
-	private HttpExchange exchange;
+	private Exchange exchange;
 	private HttpRequest req;
 	
 	private int status;
 	private Charset charset;
 	private boolean closed = false;
+	private ResponseStream stream;
+	private Writer writer;
 	
-	public HttpResponse(Express4J app, HttpExchange exchange, HttpRequest req) {
+	public HttpResponse(Express4J app, Exchange exchange, HttpRequest req) {
 		this.app = app;
 		this.exchange = exchange;
 		this.req = req;
@@ -234,18 +257,146 @@ public class HttpResponse {
 	public void send() throws IOException { this.send(""); }
 	/**
 	 * Sends the HTTP response.
+	 * The body is encoded with the response charset.
 	 *
 	 * @param body
 	 * @throws IOException
 	 */
 	public void send(String body) throws IOException {
-		this.exchange.sendResponseHeaders(this.status, body.getBytes().length);
+		this.send(body.getBytes(this.charset.toCharset()));
+	}
+	
+	/**
+	 * Sends the provided bytes as the HTTP response.
+	 *
+	 * @param body
+	 * @throws IOException
+	 */
+	public void send(byte[] body) throws IOException {
+		this.send(body, 0, body.length);
+	}
+	
+	/**
+	 * Sends part of the provided array as the HTTP response.
+	 *
+	 * @param body
+	 * @param offset
+	 * @param length
+	 * @throws IOException
+	 */
+	public void send(byte[] body, int offset, int length) throws IOException {
+		String encoding = this.negotiateEncoding(length, CompressionUtils.GZIP, CompressionUtils.DEFLATE);
+		if(encoding != null) {
+			body = CompressionUtils.compress(body, offset, length, encoding, this.app.getCompression().getLevel());
+			offset = 0;
+			length = body.length;
+		}
+		this.exchange.sendResponseHeaders(this.status, length > 0 ? length : -1);
+		OutputStream os = this.exchange.getResponseBody();
+		os.write(body, offset, length);
+		os.close();
+		this.closed = true;
+	}
+	
+	/**
+	 * Sends bytes that are already encoded as the HTTP response, without compressing them
+	 * Used to replay stored responses, the Content-Encoding header must already describe the bytes.
+	 *
+	 * @param body
+	 * @throws IOException
+	 */
+	public void sendEncoded(byte[] body) throws IOException {
+		this.exchange.sendResponseHeaders(this.status, body.length > 0 ? body.length : -1);
 		OutputStream os = this.exchange.getResponseBody();
-		os.write(body.getBytes());
+		os.write(body);
 		os.close();
 		this.closed = true;
 	}
 	
+	/**
+	 * Sends the remaining bytes of the provided buffer as the HTTP response.
+	 * Direct buffers are written without copying unless the response is compressed.
+	 *
+	 * @param body
+	 * @throws IOException
+	 */
+	public void send(ByteBuffer body) throws IOException {
+		if(body.hasArray()) {
+			this.send(body.array(), body.arrayOffset() + body.position(), body.remaining());
+			return;
+		}
+		int length = body.remaining();
+		String encoding = this.negotiateEncoding(length, CompressionUtils.GZIP, CompressionUtils.DEFLATE);
+		if(encoding != null) {
+			byte[] data = new byte[length];
+			body.duplicate().get(data);
+			body = ByteBuffer.wrap(CompressionUtils.compress(data, 0, length, encoding, this.app.getCompression().getLevel()));
+			length = body.remaining();
+		}
+		this.exchange.sendResponseHeaders(this.status, length > 0 ? length : -1);
+		OutputStream os = this.exchange.getResponseBody();
+		write(body.duplicate(), os);
+		os.close();
+		this.closed = true;
+	}
+	
+	/**
+	 * Returns a stream over the response body for handlers that produce their response progressively
+	 * The headers are sent once the first buffer fills up or the stream is flushed, the body is then sent in chunks.
+	 * Bodies small enough to fit in a single buffer are sent with a Content-Length when the stream is closed.
+	 * The stream is closed by the Express4J service once the request has been handled if the handler does not close it.
+	 *
+	 * @return
+	 */
+	public OutputStream stream() {
+		if(this.stream == null) {
+			this.stream = new ResponseStream();
+			this.closed = true;
+		}
+		return this.stream;
+	}
+	
+	/**
+	 * Returns a writer over the response body, encoding text with the response charset
+	 * Works like <code>HttpResponse.stream()</code>, call <code>flush()</code> to send what has been written so far.
+	 *
+	 * @return
+	 */
+	public Writer writer() {
+		if(this.writer == null)
+			this.writer = new OutputStreamWriter(this.stream(), this.charset.toCharset());
+		return this.writer;
+	}
+	
+	/**
+	 * Opens a Server-Sent Events stream, the response stays open until the stream is closed or the client goes away
+	 * Events can be sent from any thread, use a <code>SseHub</code> to fan events out to many clients.
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	public SseStream sse() throws IOException {
+		this.set("Content-Type", ContentType.EVENT_STREAM.toString());
+		this.set("Cache-Control", "no-cache");
+		this.set("X-Accel-Buffering", "no");
+		this.exchange.sendResponseHeaders(this.status, 0);
+		this.closed = true;
+		return new SseStream(this.exchange, this.req.headers().first("Last-Event-ID"));
+	}
+	
+	/**
+	 * Finishes a response opened with <code>HttpResponse.stream()</code> or <code>HttpResponse.writer()</code>
+	 * Called by the Express4J service once the request has been handled.
+	 *
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		if(this.writer != null)
+			this.writer.close();
+		else if(this.stream != null)
+			this.stream.close();
+	}
+	
 	/**
 	 * Transfers the file at the given path.
 	 *
@@ -274,29 +425,339 @@ public class HttpResponse {
 	public void sendFile(File file) throws FileNotFoundException, IOException, TraversalAttackPreventionException, FileRequiredException {
 		if(!file.getPath().startsWith(this.app.getRoot()))
 			throw new TraversalAttackPreventionException("Files sent to the client must be within the Express4J root.");
-		if(!file.isFile())
-			throw new FileRequiredException("You can not send a directory to the client.");
 		
-		this.exchange.sendResponseHeaders(200, 0);
+		if(this.get("Content-Type").isEmpty())
+			this.set("Content-Type", MimeUtils.getType(file.getName()));
+		StaticCache cache = this.app.getStaticCache();
+		StaticFile entry = cache.get(file);
+		StaticFile source = entry;
+		ByteBuffer body = entry.getContent();
+		List<ByteRange> ranges = this.status == 200 && this.req.getMethod() == Method.GET ? this.getRanges(entry) : null;
+		String encoding = ranges == null ? this.negotiateEncoding(entry.getLength(), CompressionUtils.GZIP) : null;
+		if(encoding != null) {
+			if(entry.isCached())
+				body = cache.gzip(entry, this.app.getCompression().getLevel());
+			else {
+				StaticFile sibling = cache.find(new File(file.getPath() + ".gz"));
+				if(sibling != null && sibling.getLastModified() >= entry.getLastModified()) {
+					source = sibling;
+					body = sibling.getContent();
+				}
+			}
+		}
+		
+		this.set("Accept-Ranges", "bytes");
+		this.set("Last-Modified", entry.getLastModifiedString());
+		this.set("ETag", entry.getEtag(encoding));
+		if(this.status == 200 && (this.req.getMethod() == Method.GET || this.req.getMethod() == Method.HEAD)) {
+			List<String> ifNoneMatch = this.req.get("If-None-Match");
+			List<String> ifModifiedSince = this.req.get("If-Modified-Since");
+			if(entry.isNotModified(ifNoneMatch.isEmpty() ? null : String.join(",", ifNoneMatch), ifModifiedSince.isEmpty() ? null : ifModifiedSince.get(0))) {
+				this.exchange.sendResponseHeaders(304, -1);
+				this.exchange.close();
+				this.closed = true;
+				return;
+			}
+		}
+		
+		if(ranges != null) {
+			this.sendRanges(entry, ranges);
+			return;
+		}
+		
+		OutputStream os;
+		if(body != null) {
+			this.exchange.sendResponseHeaders(this.status, body.remaining() > 0 ? body.remaining() : -1);
+			os = this.exchange.getResponseBody();
+			write(body, os);
+		} else {
+			boolean streamed = encoding != null && source == entry;
+			this.exchange.sendResponseHeaders(this.status, streamed ? 0 : (source.getLength() > 0 ? source.getLength() : -1));
+			os = this.exchange.getResponseBody();
+			FileChannel channel = new FileInputStream(source.getFile()).getChannel();
+			try {
+				if(streamed) {
+					OutputStream compressed = CompressionUtils.wrap(os, encoding, this.app.getCompression().getLevel());
+					transfer(channel, 0, source.getLength(), compressed);
+					compressed.close();
+				} else
+					transfer(channel, 0, source.getLength(), os);
+			} finally {
+				channel.close();
+			}
+		}
+		os.close();
+		this.closed = true;
+	}
+	
+	/**
+	 * Returns the ranges of the file requested by the Range header, or <code>null</code> if the whole file should be sent
+	 * The Range header is ignored when an If-Range validator no longer matches the file.
+	 *
+	 * @param entry
+	 * @return
+	 */
+	private List<ByteRange> getRanges(StaticFile entry) {
+		List<String> range = this.req.get("Range");
+		if(range.isEmpty())
+			return null;
+		List<String> ifRange = this.req.get("If-Range");
+		if(!ifRange.isEmpty()) {
+			String validator = ifRange.get(0).trim();
+			if(validator.startsWith("\"")) {
+				if(!validator.equals(entry.getEtag()))
+					return null;
+			} else {
+				Date date = DateUtils.fromGMTString(validator);
+				if(date == null || date.getTime() / 1000 != entry.getLastModified() / 1000)
+					return null;
+			}
+		}
+		return ByteRange.parse(range.get(0), entry.getLength());
+	}
+	
+	/**
+	 * Sends the requested ranges of a file as a 206 response, using multipart/byteranges when more than one range was requested
+	 * Only the requested slices are read, at their absolute position in the file.
+	 *
+	 * @param entry
+	 * @param ranges
+	 * @throws IOException
+	 */
+	private void sendRanges(StaticFile entry, List<ByteRange> ranges) throws IOException {
+		long total = entry.getLength();
+		if(ranges.isEmpty()) {
+			this.set("Content-Range", "bytes */" + total);
+			this.exchange.sendResponseHeaders(416, -1);
+			this.exchange.close();
+			this.closed = true;
+			return;
+		}
+		
+		byte[][] headers = null;
+		byte[] trailer = null;
+		long length;
+		if(ranges.size() == 1) {
+			this.set("Content-Range", ranges.get(0).toContentRange(total));
+			length = ranges.get(0).length();
+		} else {
+			String boundary = Long.toHexString(System.nanoTime()) + Long.toHexString(Double.doubleToLongBits(Math.random()));
+			String type = this.get("Content-Type").get(0);
+			this.set("Content-Type", "multipart/byteranges; boundary=" + boundary);
+			headers = new byte[ranges.size()][];
+			trailer = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+			length = trailer.length;
+			for(int i = 0; i < ranges.size(); i++) {
+				headers[i] = ("\r\n--" + boundary + "\r\nContent-Type: " + type + "\r\nContent-Range: " + ranges.get(i).toContentRange(total) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+				length += headers[i].length + ranges.get(i).length();
+			}
+		}
+		
+		this.exchange.sendResponseHeaders(206, length);
 		OutputStream os = this.exchange.getResponseBody();
-		FileInputStream fs = new FileInputStream(file);
-		final byte[] buffer = new byte[0x10000];
-		int count = 0;
-		while((count = fs.read(buffer)) >= 0)
-			os.write(buffer, 0, count);
-		fs.close();
+		ByteBuffer content = entry.getContent();
+		FileChannel channel = content == null ? new FileInputStream(entry.getFile()).getChannel() : null;
+		try {
+			for(int i = 0; i < ranges.size(); i++) {
+				ByteRange range = ranges.get(i);
+				if(headers != null)
+					os.write(headers[i]);
+				if(content != null) {
+					content.limit((int) range.getEnd() + 1).position((int) range.getStart());
+					write(content, os);
+				} else
+					transfer(channel, range.getStart(), range.length(), os);
+			}
+			if(trailer != null)
+				os.write(trailer);
+		} finally {
+			if(channel != null)
+				channel.close();
+		}
 		os.close();
 		this.closed = true;
 	}
 	
+	/**
+	 * Sends the response headers for a body of unknown length and returns the stream to write it to.
+	 * The body is sent with chunked encoding, compressed when the client accepts it and <code>hint</code> is at least the minimum size.
+	 *
+	 * @param hint The expected size of the body
+	 * @return
+	 * @throws IOException
+	 */
+	private OutputStream open(long hint) throws IOException {
+		String encoding = this.negotiateEncoding(hint, CompressionUtils.GZIP, CompressionUtils.DEFLATE);
+		this.exchange.sendResponseHeaders(this.status, 0);
+		OutputStream os = this.exchange.getResponseBody();
+		if(encoding != null)
+			os = CompressionUtils.wrap(os, encoding, this.app.getCompression().getLevel());
+		return new BufferedOutputStream(os, 8192);
+	}
+	
+	/**
+	 * Chooses the Content-Encoding for a body of the provided length based on the response Content-Type and the request's Accept-Encoding
+	 * Sets the Content-Encoding and Vary headers, returns <code>null</code> if the body should be sent as is.
+	 *
+	 * @param length
+	 * @param supported
+	 * @return
+	 */
+	private String negotiateEncoding(long length, String... supported) {
+		CompressionSettings settings = this.app.getCompression();
+		List<String> type = this.get("Content-Type");
+		if(length < settings.getMinSize() || type.isEmpty() || !settings.isCompressible(type.get(0)) || !this.get("Content-Encoding").isEmpty())
+			return null;
+		this.append("Vary", "Accept-Encoding");
+		for(String encoding : supported)
+			if(this.req.acceptsEncoding(encoding)) {
+				this.set("Content-Encoding", encoding);
+				return encoding;
+			}
+		return null;
+	}
+	
+	/**
+	 * Writes the remaining bytes of a buffer to the response
+	 *
+	 * @param buffer
+	 * @param os
+	 * @throws IOException
+	 */
+	static void write(ByteBuffer buffer, OutputStream os) throws IOException {
+		if(buffer.hasArray())
+			os.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+		else
+			Channels.newChannel(os).write(buffer);
+	}
+	
+	/**
+	 * Copies part of a file to the response without passing it through a buffer of our own
+	 * The channel is read at an absolute position so the same channel can serve several ranges.
+	 *
+	 * @param channel
+	 * @param position
+	 * @param count
+	 * @param os
+	 * @throws IOException
+	 */
+	static void transfer(FileChannel channel, long position, long count, OutputStream os) throws IOException {
+		WritableByteChannel target = Channels.newChannel(os);
+		long end = position + count;
+		while(position < end) {
+			long sent = channel.transferTo(position, end - position, target);
+			if(sent <= 0)
+				throw new EOFException("File was truncated while it was being sent.");
+			position += sent;
+		}
+	}
+	
 	/**
 	 * Sends a JSON Object from Google Gson.
+	 * The object is serialized straight to the response with the application's Gson instance.
 	 *
 	 * @param obj
 	 * @throws IOException
 	 */
 	public void sendJson(Object obj) throws IOException {
-		this.type(ContentType.JSON, this.charset).send(Express4J.GSON.toJson(obj));
+		this.sendJson(obj, obj != null ? obj.getClass() : Object.class);
+	}
+	
+	/**
+	 * Sends a JSON Object from Google Gson, serialized as the provided type.
+	 * Use for generic types such as <code>new TypeToken&lt;List&lt;User&gt;&gt;(){}.getType()</code>.
+	 *
+	 * @param obj
+	 * @param type
+	 * @throws IOException
+	 */
+	public void sendJson(Object obj, Type type) throws IOException {
+		JsonWriter writer = this.openJson();
+		try {
+			this.app.getGson().toJson(obj, type, writer);
+		} catch(JsonIOException e) {
+			if(e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw e;
+		}
+		writer.close();
+		this.closed = true;
+	}
+	
+	/**
+	 * Sends the provided items as a JSON array, serializing one item at a time.
+	 * Items are pulled from the iterable while the response is written so large results never have to be held in memory.
+	 *
+	 * @param items
+	 * @throws IOException
+	 */
+	public void sendJsonArray(Iterable<?> items) throws IOException {
+		this.sendJsonArray(items.iterator());
+	}
+	
+	/**
+	 * Sends the remaining items of an iterator as a JSON array, serializing one item at a time.
+	 *
+	 * @param items
+	 * @throws IOException
+	 */
+	public void sendJsonArray(Iterator<?> items) throws IOException {
+		Gson gson = this.app.getGson();
+		JsonWriter writer = this.openJson();
+		try {
+			writer.beginArray();
+			while(items.hasNext()) {
+				Object item = items.next();
+				gson.toJson(item, item != null ? item.getClass() : Object.class, writer);
+			}
+			writer.endArray();
+		} catch(JsonIOException e) {
+			if(e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw e;
+		}
+		writer.close();
+		this.closed = true;
+	}
+	
+	/**
+	 * Sets the JSON Content-Type and returns a writer over the response body
+	 *
+	 * @return
+	 */
+	private JsonWriter openJson() {
+		this.type(ContentType.JSON, Charset.UTF_8);
+		return new JsonWriter(new OutputStreamWriter(this.stream(), StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * Renders the template with the provided name, relative to the template directory, straight to the response.
+	 *
+	 * @param name
+	 * @param model
+	 * @throws FileNotFoundException
+	 * @throws IOException
+	 * @throws TraversalAttackPreventionException
+	 */
+	public void render(String name, Map<String, ?> model) throws FileNotFoundException, IOException, TraversalAttackPreventionException {
+		Template template = this.app.getTemplates().get(name);
+		if(this.get("Content-Type").isEmpty())
+			this.set("Content-Type", MimeUtils.getType(name) + "; charset=UTF-8");
+		this.render(template, model);
+	}
+	
+	/**
+	 * Renders a compiled template straight to the response.
+	 *
+	 * @param template
+	 * @param model
+	 * @throws IOException
+	 */
+	public void render(Template template, Map<String, ?> model) throws IOException {
+		OutputStream os = this.open(template.getSize());
+		template.render(model, os);
+		os.close();
+		this.closed = true;
 	}
 	
 	/**
@@ -331,4 +792,114 @@ public class HttpResponse {
 	 * @return
 	 */
 	public boolean isClosed() { return this.closed; }
+	/**
+	 * Returns the status sent to the client, or the status that will be sent if the headers have not been sent yet
+	 *
+	 * @return
+	 */
+	public int getStatus() { return this.exchange.getResponseCode() != -1 ? this.exchange.getResponseCode() : this.status; }
+	/**
+	 * Returns <code>true</code> if the response headers have already been sent, <code>false</code> otherwise.
+	 *
+	 * @return
+	 */
+	public boolean isCommitted() { return this.exchange.getResponseCode() != -1; }
+	
+	/**
+	 * Returns the exchange the response is sent through
+	 *
+	 * @return
+	 */
+	public Exchange getExchange() { return this.exchange; }
+	
+	/**
+	 * Sends the response through another exchange, usually one wrapping <code>HttpResponse.getExchange()</code>
+	 * Lets middleware observe what is sent, such as a cache recording the response. Must be called before anything is sent.
+	 *
+	 * @param exchange
+	 * @return
+	 */
+	public HttpResponse wrap(Exchange exchange) {
+		if(this.isCommitted() || this.stream != null || this.writer != null)
+			throw new IllegalStateException("The response has already been started.");
+		this.exchange = exchange;
+		return this;
+	}
+	
+	/**
+	 * An output stream over the response body that holds back the headers until the first buffer fills up
+	 * Bodies that fit in a single buffer are sent with a Content-Length and compressed in one pass, larger ones are sent chunked.
+	 */
+	private class ResponseStream extends OutputStream {
+		private byte[] buffer = BufferPool.SHARED.acquire();
+		private int count = 0;
+		private OutputStream os;
+		
+		@Override
+		public void write(int b) throws IOException {
+			if(this.os == null && this.count < this.buffer.length) {
+				this.buffer[this.count++] = (byte) b;
+				return;
+			}
+			this.commit().write(b);
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if(this.os == null && this.count + len <= this.buffer.length) {
+				System.arraycopy(b, off, this.buffer, this.count, len);
+				this.count += len;
+				return;
+			}
+			this.commit().write(b, off, len);
+		}
+		
+		@Override
+		public void flush() throws IOException {
+			this.commit().flush();
+		}
+		
+		@Override
+		public void close() throws IOException {
+			if(this.buffer == null)
+				return;
+			try {
+				// An error document may have replaced a body that was never committed
+				if(this.os == null && HttpResponse.this.isCommitted())
+					return;
+				if(this.os == null) {
+					byte[] data = this.buffer;
+					int length = this.count;
+					String encoding = HttpResponse.this.negotiateEncoding(length, CompressionUtils.GZIP, CompressionUtils.DEFLATE);
+					if(encoding != null) {
+						data = CompressionUtils.compress(data, 0, length, encoding, HttpResponse.this.app.getCompression().getLevel());
+						length = data.length;
+					}
+					HttpResponse.this.exchange.sendResponseHeaders(HttpResponse.this.status, length > 0 ? length : -1);
+					OutputStream os = HttpResponse.this.exchange.getResponseBody();
+					os.write(data, 0, length);
+					os.close();
+				} else
+					this.os.close();
+			} finally {
+				BufferPool.SHARED.release(this.buffer);
+				this.buffer = null;
+			}
+		}
+		
+		/**
+		 * Sends the headers for a chunked response and writes out the buffered bytes
+		 *
+		 * @return
+		 * @throws IOException
+		 */
+		private OutputStream commit() throws IOException {
+			if(this.os == null) {
+				this.os = HttpResponse.this.open(Long.MAX_VALUE);
+				this.os.write(this.buffer, 0, this.count);
+				this.count = 0;
+			}
+			return this.os;
+		}
+	}
 }
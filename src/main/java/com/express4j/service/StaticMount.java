@@ -0,0 +1,67 @@
+package com.express4j.service;
+
+import com.express4j.Express4J;
+import com.express4j.cache.StaticIndex;
+import com.express4j.events.Chain;
+import com.express4j.events.Middleware;
+import com.express4j.exception.FileRequiredException;
+import com.express4j.exception.TraversalAttackPreventionException;
+import com.express4j.utils.URLUtils;
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Serves the files of a directory below a path, resolving each request against the directory when it arrives.
+ * Requests that do not name an existing file are passed on to the next handler.
+ */
+public class StaticMount implements Middleware, Closeable {
+	private Express4J app;
+	@Getter private String path;
+	@Getter private File directory;
+	@Getter private StaticIndex index;
+	
+	public StaticMount(Express4J app, String path, File directory, boolean watch) throws IOException {
+		this.app = app;
+		this.path = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+		this.directory = directory;
+		this.index = watch ? new StaticIndex(directory, app.getStaticCache(), app.getLog()) : null;
+	}
+	
+	@Override
+	public void handle(HttpRequest req, HttpResponse res, Chain chain) throws Exception {
+		String path = req.getPath();
+		if(path.length() <= this.path.length() + 1 || !path.startsWith(this.path) || path.charAt(this.path.length()) != '/' || path.endsWith("/")) {
+			chain.next();
+			return;
+		}
+		String relative = URLUtils.decode(path.substring(this.path.length() + 1), false);
+		for(String segment : relative.split("/", -1))
+			if(segment.isEmpty() || segment.equals(".") || segment.equals("..") || segment.indexOf('\\') >= 0 || segment.indexOf('\0') >= 0)
+				throw new TraversalAttackPreventionException("Static paths must not contain relative segments.");
+		
+		if(this.index != null && this.index.isReady() && !this.index.contains(relative)) {
+			chain.next();
+			return;
+		}
+		File file = new File(this.directory, relative);
+		try {
+			if(this.app.getStaticCache().find(file) == null) {
+				chain.next();
+				return;
+			}
+		} catch(FileRequiredException e) {
+			chain.next();
+			return;
+		}
+		res.sendFile(file);
+	}
+	
+	@Override
+	public void close() throws IOException {
+		if(this.index != null)
+			this.index.close();
+	}
+}
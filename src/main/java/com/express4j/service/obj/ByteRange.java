@@ -0,0 +1,114 @@
+package com.express4j.service.obj;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+@Getter
+public class ByteRange {
+	private static final int MAX_RANGES = 16;
+	
+	private long start;
+	private long end;
+	
+	public ByteRange(long start, long end) {
+		this.start = start;
+		this.end = end;
+	}
+	
+	/**
+	 * Returns the number of bytes in this range
+	 *
+	 * @return
+	 */
+	public long length() { return this.end - this.start + 1; }
+	
+	/**
+	 * Returns the value of the Content-Range header for this range
+	 *
+	 * @param total
+	 * @return
+	 */
+	public String toContentRange(long total) {
+		return "bytes " + this.start + "-" + this.end + "/" + total;
+	}
+	
+	/**
+	 * Parses the value of a Range header against a representation of the provided length.
+	 * Returns <code>null</code> if the header is malformed or asks for too many ranges and should be ignored,
+	 * or an empty list if none of the ranges can be satisfied.
+	 * Overlapping and adjacent ranges are merged, and the result is sorted by offset.
+	 *
+	 * @param header
+	 * @param length
+	 * @return
+	 */
+	public static List<ByteRange> parse(String header, long length) {
+		if(header == null || !header.startsWith("bytes="))
+			return null;
+		List<ByteRange> ranges = new ArrayList<ByteRange>();
+		String[] specs = header.substring(6).split(",");
+		if(specs.length > MAX_RANGES)
+			return null;
+		for(String spec : specs) {
+			spec = spec.trim();
+			int dash = spec.indexOf('-');
+			if(dash < 0)
+				return null;
+			try {
+				if(dash == 0) {
+					long suffix = Long.parseLong(spec.substring(1));
+					if(suffix > 0 && length > 0)
+						ranges.add(new ByteRange(Math.max(0, length - suffix), length - 1));
+					continue;
+				}
+				long start = Long.parseLong(spec.substring(0, dash));
+				long end = dash == spec.length() - 1 ? Long.MAX_VALUE : Long.parseLong(spec.substring(dash + 1));
+				if(start < 0 || end < start)
+					return null;
+				if(start < length)
+					ranges.add(new ByteRange(start, Math.min(end, length - 1)));
+			} catch(NumberFormatException e) {
+				return null;
+			}
+		}
+		return merge(ranges, length);
+	}
+	
+	/**
+	 * Sorts the provided ranges and merges those that overlap or touch.
+	 * Returns <code>null</code> if the merged ranges still cover more than the representation,
+	 * so the whole representation is sent instead.
+	 *
+	 * @param ranges
+	 * @param length
+	 * @return
+	 */
+	private static List<ByteRange> merge(List<ByteRange> ranges, long length) {
+		if(ranges.size() < 2)
+			return ranges;
+		Collections.sort(ranges, new Comparator<ByteRange>() {
+			@Override
+			public int compare(ByteRange a, ByteRange b) {
+				return Long.compare(a.start, b.start);
+			}
+		});
+		List<ByteRange> merged = new ArrayList<ByteRange>();
+		ByteRange last = null;
+		long total = 0;
+		for(ByteRange range : ranges) {
+			if(last != null && range.start <= last.end + 1) {
+				total -= last.length();
+				last.end = Math.max(last.end, range.end);
+			} else {
+				last = range;
+				merged.add(last);
+			}
+			total += last.length();
+		}
+		return total > length ? null : merged;
+	}
+}
@@ -1,7 +1,11 @@
 package com.express4j.service.obj;
 
+import java.nio.charset.StandardCharsets;
+
 public enum Charset {
 	UTF_8("UTF-8"),
+	ISO_8859_1("ISO-8859-1"),
+	US_ASCII("US-ASCII"),
 	NONE(null);
 	
 	private String charset;
@@ -10,6 +14,15 @@ public enum Charset {
 		this.charset = charset;
 	}
 	
+	/**
+	 * Returns the Java charset used to encode text, UTF-8 when no charset is set
+	 *
+	 * @return
+	 */
+	public java.nio.charset.Charset toCharset() {
+		return this.charset != null ? java.nio.charset.Charset.forName(this.charset) : StandardCharsets.UTF_8;
+	}
+	
 	public String toString() {
 		return this.charset;
 	}
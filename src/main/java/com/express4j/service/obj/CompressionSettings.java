@@ -0,0 +1,46 @@
+package com.express4j.service.obj;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+@Getter
+@Setter
+public class CompressionSettings {
+	private boolean enabled;
+	private int minSize;
+	private int level;
+	private Set<String> types;
+	
+	public CompressionSettings() {
+		this.enabled = true;
+		this.minSize = 1024;
+		this.level = 6;
+		this.types = new HashSet<String>(Arrays.asList(
+			"text/*",
+			"application/json",
+			"application/javascript",
+			"application/xml",
+			"application/xhtml+xml",
+			"image/svg+xml"
+		));
+	}
+	
+	/**
+	 * Returns <code>true</code> if responses of the provided Content-Type should be compressed, <code>false</code> otherwise.
+	 *
+	 * @param contentType
+	 * @return
+	 */
+	public boolean isCompressible(String contentType) {
+		if(!this.enabled || contentType == null)
+			return false;
+		int end = contentType.indexOf(';');
+		String type = (end < 0 ? contentType : contentType.substring(0, end)).trim().toLowerCase();
+		int slash = type.indexOf('/');
+		return this.types.contains(type) || (slash > 0 && this.types.contains(type.substring(0, slash) + "/*"));
+	}
+}
@@ -15,6 +15,7 @@ public enum ContentType {
 	JAVASCRIPT("text/javascript"),
 	CSS("stylesheet/css"),
 	UNSTRUCTURED_TEXT("text/plain"),
+	EVENT_STREAM("text/event-stream"),
 	UNKNOWN(null);
 	
 	private String type;
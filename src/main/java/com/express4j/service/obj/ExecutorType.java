@@ -0,0 +1,47 @@
+package com.express4j.service.obj;
+
+public enum ExecutorType {
+	/**
+	 * Handles every request on the server's single dispatcher thread
+	 */
+	DISPATCHER,
+	/**
+	 * Handles requests on a fixed pool of worker threads with a bounded queue
+	 * When the queue is full the dispatcher thread handles the request itself, slowing down accepts instead of dropping them
+	 * With the NIO transport the request is instead answered with 503 and its connection closed, so an event loop never blocks on a handler
+	 */
+	BOUNDED,
+	/**
+	 * Handles requests on a work-stealing ForkJoinPool
+	 */
+	WORK_STEALING,
+	/**
+	 * Handles every request on its own virtual thread (Requires Java 21+)
+	 */
+	VIRTUAL;
+	
+	/**
+	 * Returns the executor type used when none is provided, virtual threads when the runtime supports them
+	 *
+	 * @return
+	 */
+	public static ExecutorType getDefault() {
+		return VIRTUAL.isAvailable() ? VIRTUAL : BOUNDED;
+	}
+	
+	/**
+	 * Returns <code>true</code> if the running JVM supports this executor type, <code>false</code> otherwise.
+	 *
+	 * @return
+	 */
+	public boolean isAvailable() {
+		if(this != VIRTUAL)
+			return true;
+		try {
+			java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return true;
+		} catch(NoSuchMethodException e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package com.express4j.service.obj;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Case-insensitive, read-only view of a request's headers.
+ * Maps that already look names up case-insensitively are used as they are; any other map is indexed once, on the first lookup.
+ */
+public class HeaderIndex {
+	private Map<String, List<String>> source;
+	private Map<String, List<String>> index;
+	
+	public HeaderIndex(Map<String, List<String>> source, boolean caseInsensitive) {
+		this.source = source;
+		if(caseInsensitive)
+			this.index = source;
+	}
+	
+	/**
+	 * Returns every value of the provided header, or an empty list if it was not sent
+	 *
+	 * @param name
+	 * @return
+	 */
+	public List<String> get(String name) {
+		List<String> values = this.index().get(name);
+		return values != null ? Collections.unmodifiableList(values) : Collections.<String>emptyList();
+	}
+	
+	/**
+	 * Returns the first value of the provided header, or <code>null</code> if it was not sent
+	 *
+	 * @param name
+	 * @return
+	 */
+	public String first(String name) {
+		List<String> values = this.index().get(name);
+		return values != null && !values.isEmpty() ? values.get(0) : null;
+	}
+	
+	/**
+	 * Returns <code>true</code> if the provided header was sent, <code>false</code> otherwise.
+	 *
+	 * @param name
+	 * @return
+	 */
+	public boolean contains(String name) { return this.index().containsKey(name); }
+	
+	/**
+	 * Returns the headers as they were received
+	 *
+	 * @return
+	 */
+	public Map<String, List<String>> asMap() { return Collections.unmodifiableMap(this.source); }
+	
+	private Map<String, List<String>> index() {
+		if(this.index == null) {
+			TreeMap<String, List<String>> index = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+			index.putAll(this.source);
+			this.index = index;
+		}
+		return this.index;
+	}
+}
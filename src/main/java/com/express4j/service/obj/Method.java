@@ -35,4 +35,18 @@ public enum Method {
 	public String toString() {
 		return this.method;
 	}
+	
+	/**
+	 * Returns the method sent on the wire under the provided name, or <code>null</code> if it is unknown
+	 * <code>ALL</code> only matches routes and is never returned.
+	 *
+	 * @param name
+	 * @return
+	 */
+	public static Method fromString(String name) {
+		for(Method method : values())
+			if(method != ALL && method.method.equals(name))
+				return method;
+		return null;
+	}
 }
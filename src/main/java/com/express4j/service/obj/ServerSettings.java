@@ -0,0 +1,34 @@
+package com.express4j.service.obj;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class ServerSettings {
+	private int backlog;
+	private ExecutorType executor;
+	private int threads;
+	private int queueSize;
+	private TransportType transport;
+	private int eventLoops;
+	private boolean reusePort;
+	private int bufferSize;
+	private int maxHeaderSize;
+	private long keepAlive;
+	private long timeout;
+	
+	public ServerSettings() {
+		this.backlog = 0;
+		this.executor = ExecutorType.getDefault();
+		this.threads = Math.max(8, Runtime.getRuntime().availableProcessors() * 4);
+		this.queueSize = 1024;
+		this.transport = TransportType.JDK;
+		this.eventLoops = Runtime.getRuntime().availableProcessors();
+		this.reusePort = false;
+		this.bufferSize = 16384;
+		this.maxHeaderSize = 8192;
+		this.keepAlive = 30000;
+		this.timeout = 30000;
+	}
+}
@@ -0,0 +1,39 @@
+package com.express4j.service.obj;
+
+import com.express4j.transport.Transport;
+import com.express4j.transport.jdk.JdkTransport;
+import com.express4j.transport.memory.MemoryTransport;
+import com.express4j.transport.nio.NioTransport;
+
+public enum TransportType {
+	/**
+	 * Serves requests with the HTTP server bundled with the JDK
+	 */
+	JDK,
+	/**
+	 * Serves requests with Express4J's own selector based HTTP/1.1 server
+	 * Connections wait on a few event loop threads instead of a thread each, with keep-alive, pipelining and pooled direct buffers
+	 */
+	NIO,
+	/**
+	 * Serves requests submitted in-process through <code>MemoryTransport</code>, without opening any socket
+	 * Meant for tests and for measuring the framework's overhead, reach the transport with <code>Express4J.getTransport()</code>
+	 */
+	MEMORY;
+	
+	/**
+	 * Creates a new server of this type
+	 *
+	 * @return
+	 */
+	public Transport create() {
+		switch(this) {
+			case NIO:
+				return new NioTransport();
+			case MEMORY:
+				return new MemoryTransport();
+			default:
+				return new JdkTransport();
+		}
+	}
+}
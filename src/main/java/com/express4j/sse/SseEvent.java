@@ -0,0 +1,90 @@
+package com.express4j.sse;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A single Server-Sent Event.
+ * Events are immutable and encoded once, the same frame is written to every subscriber.
+ */
+public class SseEvent {
+	@Getter private String id;
+	@Getter private String event;
+	@Getter private String data;
+	
+	private volatile byte[] frame;
+	
+	public SseEvent(String data) { this(null, null, data); }
+	public SseEvent(String event, String data) { this(null, event, data); }
+	public SseEvent(String id, String event, String data) {
+		this.id = id;
+		this.event = event;
+		this.data = data;
+	}
+	
+	/**
+	 * Returns a copy of this event with the provided id
+	 *
+	 * @param id
+	 * @return
+	 */
+	public SseEvent withId(String id) {
+		return new SseEvent(id, this.event, this.data);
+	}
+	
+	/**
+	 * Returns this event as a text/event-stream frame
+	 * Multi-line data is split into one <code>data:</code> field per line.
+	 *
+	 * @return
+	 */
+	public byte[] encode() {
+		byte[] frame = this.frame;
+		if(frame == null) {
+			StringBuilder sb = new StringBuilder();
+			if(this.id != null)
+				sb.append("id: ").append(strip(this.id)).append('\n');
+			if(this.event != null)
+				sb.append("event: ").append(strip(this.event)).append('\n');
+			String data = this.data != null ? this.data : "";
+			int start = 0;
+			for(int i = 0; i <= data.length(); i++) {
+				char c = i < data.length() ? data.charAt(i) : '\n';
+				if(c != '\n' && c != '\r')
+					continue;
+				sb.append("data: ").append(data, start, i).append('\n');
+				if(c == '\r' && i + 1 < data.length() && data.charAt(i + 1) == '\n')
+					i++;
+				start = i + 1;
+			}
+			sb.append('\n');
+			this.frame = frame = sb.toString().getBytes(StandardCharsets.UTF_8);
+		}
+		return frame;
+	}
+	
+	/**
+	 * Encodes a comment frame, ignored by clients and used to keep idle connections open
+	 *
+	 * @param comment
+	 * @return
+	 */
+	public static byte[] comment(String comment) {
+		return (": " + strip(comment) + "\n\n").getBytes(StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Encodes a frame telling clients how long to wait before reconnecting
+	 *
+	 * @param millis
+	 * @return
+	 */
+	public static byte[] retry(long millis) {
+		return ("retry: " + millis + "\n\n").getBytes(StandardCharsets.UTF_8);
+	}
+	
+	private static String strip(String value) {
+		return value.indexOf('\n') < 0 && value.indexOf('\r') < 0 ? value : value.replace("\r", "").replace("\n", "");
+	}
+}
@@ -0,0 +1,145 @@
+package com.express4j.sse;
+
+import com.express4j.service.HttpResponse;
+import com.express4j.utils.ThreadUtils;
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fans events out to every subscribed event stream.
+ * Each event is encoded once and queued on every subscriber, frames are written by a small shared pool so no thread is held per client.
+ * The most recent events are kept in a ring buffer to replay what a reconnecting client missed, based on its Last-Event-ID.
+ */
+public class SseHub implements Closeable {
+	private static final byte[] HEARTBEAT = SseEvent.comment("heartbeat");
+	
+	@Getter private final int history;
+	@Getter private final int maxPending;
+	
+	private final SseEvent[] ring;
+	private long sequence = 0;
+	private final Set<SseStream> subscribers = ConcurrentHashMap.newKeySet();
+	private final ScheduledExecutorService executor;
+	
+	public SseHub() { this(1024, 15000); }
+	public SseHub(int history, long heartbeat) { this(history, heartbeat, 1024, Math.max(2, Runtime.getRuntime().availableProcessors())); }
+	public SseHub(int history, long heartbeat, int maxPending, int threads) {
+		this.history = history;
+		this.maxPending = maxPending;
+		this.ring = new SseEvent[Math.max(history, 0)];
+		this.executor = Executors.newScheduledThreadPool(threads, ThreadUtils.namedFactory("Express4J-sse"));
+		if(heartbeat > 0)
+			this.executor.scheduleAtFixedRate(new Runnable() {
+				@Override
+				public void run() {
+					SseHub.this.broadcast(HEARTBEAT);
+				}
+			}, heartbeat, heartbeat, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Opens an event stream on the response and subscribes it to this hub
+	 * Events published after the client's Last-Event-ID that are still held in the history are replayed first.
+	 *
+	 * @param res
+	 * @return
+	 * @throws IOException
+	 */
+	public SseStream subscribe(HttpResponse res) throws IOException {
+		return this.subscribe(res.sse());
+	}
+	
+	/**
+	 * Subscribes an open event stream to this hub
+	 *
+	 * @param stream
+	 * @return
+	 */
+	public SseStream subscribe(final SseStream stream) {
+		long last = parseId(stream.getLastEventId());
+		synchronized(this) {
+			if(last >= 0 && this.ring.length > 0)
+				for(long id = Math.max(last + 1, this.sequence - this.ring.length + 1); id <= this.sequence; id++)
+					stream.offer(this.ring[(int) (id % this.ring.length)].encode(), this.executor, this.maxPending);
+			this.subscribers.add(stream);
+		}
+		stream.onClose(new Runnable() {
+			@Override
+			public void run() {
+				SseHub.this.subscribers.remove(stream);
+			}
+		});
+		return stream;
+	}
+	
+	/**
+	 * Publishes an event with only a data field to every subscriber
+	 *
+	 * @param data
+	 * @return
+	 */
+	public SseEvent publish(String data) { return this.publish(new SseEvent(data)); }
+	/**
+	 * Publishes a named event to every subscriber
+	 *
+	 * @param event
+	 * @param data
+	 * @return
+	 */
+	public SseEvent publish(String event, String data) { return this.publish(new SseEvent(event, data)); }
+	/**
+	 * Publishes an event to every subscriber
+	 * The event is given the next sequential id, which clients send back as Last-Event-ID when they reconnect.
+	 *
+	 * @param event
+	 * @return
+	 */
+	public synchronized SseEvent publish(SseEvent event) {
+		long id = ++this.sequence;
+		event = event.withId(Long.toString(id));
+		if(this.ring.length > 0)
+			this.ring[(int) (id % this.ring.length)] = event;
+		this.broadcast(event.encode());
+		return event;
+	}
+	
+	/**
+	 * Returns the number of open subscriptions
+	 *
+	 * @return
+	 */
+	public int size() { return this.subscribers.size(); }
+	
+	/**
+	 * Closes every subscription and stops the hub's threads
+	 */
+	@Override
+	public void close() {
+		this.executor.shutdown();
+		for(SseStream stream : this.subscribers)
+			stream.close();
+		this.subscribers.clear();
+	}
+	
+	private void broadcast(byte[] frame) {
+		for(SseStream stream : this.subscribers)
+			stream.offer(frame, this.executor, this.maxPending);
+	}
+	
+	private static long parseId(String id) {
+		if(id == null)
+			return -1;
+		try {
+			return Long.parseLong(id.trim());
+		} catch(NumberFormatException e) {
+			return -1;
+		}
+	}
+}
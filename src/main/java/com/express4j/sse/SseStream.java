@@ -0,0 +1,259 @@
+package com.express4j.sse;
+
+import com.express4j.transport.Exchange;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An open text/event-stream response.
+ * Frames can be written directly from the calling thread, or queued and written by an executor so a slow client never blocks the publisher.
+ * Closing never waits on a write in progress, the output is closed by whichever thread finishes writing last.
+ */
+public class SseStream implements Closeable {
+	private final Exchange exchange;
+	private final OutputStream os;
+	private final String lastEventId;
+	private final ReentrantLock lock = new ReentrantLock();
+	private boolean outputClosed = false;
+	private final Queue<byte[]> queue = new ConcurrentLinkedQueue<byte[]>();
+	private final AtomicInteger pending = new AtomicInteger();
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+	private final List<Runnable> listeners = new CopyOnWriteArrayList<Runnable>();
+	private volatile boolean closed = false;
+	
+	public SseStream(OutputStream os, String lastEventId) {
+		this.exchange = null;
+		this.os = os;
+		this.lastEventId = lastEventId;
+	}
+	public SseStream(Exchange exchange, String lastEventId) {
+		this.exchange = exchange;
+		this.os = exchange.getResponseBody();
+		this.lastEventId = lastEventId;
+	}
+	
+	/**
+	 * Returns the Last-Event-ID sent by a reconnecting client, or <code>null</code>
+	 *
+	 * @return
+	 */
+	public String getLastEventId() { return this.lastEventId; }
+	
+	/**
+	 * Sends an event with only a data field
+	 *
+	 * @param data
+	 * @throws IOException
+	 */
+	public void send(String data) throws IOException { this.send(new SseEvent(data)); }
+	/**
+	 * Sends a named event
+	 *
+	 * @param event
+	 * @param data
+	 * @throws IOException
+	 */
+	public void send(String event, String data) throws IOException { this.send(new SseEvent(event, data)); }
+	/**
+	 * Sends an event
+	 *
+	 * @param event
+	 * @throws IOException
+	 */
+	public void send(SseEvent event) throws IOException { this.write(event.encode()); }
+	
+	/**
+	 * Sends a comment, ignored by clients
+	 *
+	 * @param comment
+	 * @throws IOException
+	 */
+	public void comment(String comment) throws IOException { this.write(SseEvent.comment(comment)); }
+	
+	/**
+	 * Tells the client how long to wait before reconnecting
+	 *
+	 * @param millis
+	 * @throws IOException
+	 */
+	public void retry(long millis) throws IOException { this.write(SseEvent.retry(millis)); }
+	
+	/**
+	 * Writes and flushes an encoded frame on the calling thread
+	 * The stream is closed if the client has gone away.
+	 *
+	 * @param frame
+	 * @throws IOException
+	 */
+	public void write(byte[] frame) throws IOException {
+		if(this.closed)
+			throw new IOException("Event stream is closed.");
+		this.lock.lock();
+		try {
+			this.os.write(frame);
+			this.os.flush();
+		} catch(IOException e) {
+			this.close();
+			throw e;
+		} finally {
+			this.unlock();
+		}
+	}
+	
+	/**
+	 * Queues an encoded frame to be written by the provided executor
+	 * Returns <code>false</code> and closes the stream if more than <code>maxPending</code> frames are waiting, so a stalled client cannot hold on to memory.
+	 *
+	 * @param frame
+	 * @param executor
+	 * @param maxPending
+	 * @return
+	 */
+	public boolean offer(byte[] frame, Executor executor, int maxPending) {
+		if(this.closed)
+			return false;
+		if(this.pending.incrementAndGet() > maxPending) {
+			this.abort(executor);
+			return false;
+		}
+		this.queue.add(frame);
+		this.schedule(executor);
+		return true;
+	}
+	
+	/**
+	 * Registers a callback run once the stream is closed
+	 *
+	 * @param listener
+	 */
+	public void onClose(Runnable listener) {
+		this.listeners.add(listener);
+		if(this.closed && this.listeners.remove(listener))
+			listener.run();
+	}
+	
+	/**
+	 * Returns <code>true</code> if the stream was closed or the client has gone away, <code>false</code> otherwise.
+	 *
+	 * @return
+	 */
+	public boolean isClosed() { return this.closed; }
+	
+	@Override
+	public void close() {
+		if(this.release())
+			this.closeOutput();
+	}
+	
+	/**
+	 * Marks the stream closed and drops the connection, the publisher may not wait on a stalled client
+	 * A write blocked on the client fails once the connection is gone, streams without an exchange are closed from the executor instead.
+	 *
+	 * @param executor
+	 */
+	private void abort(Executor executor) {
+		if(!this.release())
+			return;
+		if(this.exchange != null) {
+			this.exchange.abort();
+			this.closeOutput();
+			return;
+		}
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					SseStream.this.closeOutput();
+				}
+			});
+		} catch(RejectedExecutionException e) {}
+	}
+	
+	private boolean release() {
+		synchronized(this.queue) {
+			if(this.closed)
+				return false;
+			this.closed = true;
+		}
+		this.queue.clear();
+		for(Runnable listener : this.listeners)
+			if(this.listeners.remove(listener))
+				listener.run();
+		return true;
+	}
+	
+	/**
+	 * Closes the output unless a write holds it, that writer closes it on its way out instead
+	 */
+	private void closeOutput() {
+		if(!this.lock.tryLock())
+			return;
+		try {
+			if(!this.outputClosed) {
+				this.outputClosed = true;
+				this.os.close();
+			}
+		} catch(IOException e) {
+		} finally {
+			this.lock.unlock();
+		}
+	}
+	
+	/**
+	 * Releases the output after a write, closing it if the stream was closed meanwhile
+	 */
+	private void unlock() {
+		this.lock.unlock();
+		if(this.closed)
+			this.closeOutput();
+	}
+	
+	private void schedule(final Executor executor) {
+		if(!this.scheduled.compareAndSet(false, true))
+			return;
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					SseStream.this.drain(executor);
+				}
+			});
+		} catch(RejectedExecutionException e) {
+			this.scheduled.set(false);
+			this.release();
+		}
+	}
+	
+	private void drain(Executor executor) {
+		byte[] frame;
+		this.lock.lock();
+		try {
+			while((frame = this.queue.poll()) != null) {
+				this.pending.decrementAndGet();
+				if(!this.closed)
+					this.os.write(frame);
+			}
+			if(!this.closed)
+				this.os.flush();
+		} catch(IOException e) {
+			this.close();
+		} finally {
+			this.unlock();
+			this.scheduled.set(false);
+		}
+		// A frame queued after the last poll but before the flag was cleared would otherwise wait for the next one
+		if(!this.queue.isEmpty() && !this.closed)
+			this.schedule(executor);
+	}
+}
@@ -0,0 +1,141 @@
+package com.express4j.template;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A template compiled into the literal text between its placeholders, already encoded as UTF-8.
+ * Placeholders are written <code>{NAME}</code>, where the name is made of letters, digits, <code>_</code> and <code>.</code>;
+ * any other braces are kept as text, so stylesheets and scripts can be used as is.
+ */
+public class Template {
+	private byte[][] literals;
+	private String[] keys;
+	private boolean escape;
+	private int size;
+	
+	private Template(byte[][] literals, String[] keys, boolean escape) {
+		this.literals = literals;
+		this.keys = keys;
+		this.escape = escape;
+		for(byte[] literal : literals)
+			this.size += literal.length;
+	}
+	
+	/**
+	 * Compiles a template
+	 *
+	 * @param source
+	 * @param escape Whether values are HTML escaped when they are rendered
+	 * @return
+	 */
+	public static Template compile(String source, boolean escape) {
+		List<byte[]> literals = new ArrayList<byte[]>();
+		List<String> keys = new ArrayList<String>();
+		int start = 0;
+		int open = source.indexOf('{');
+		while(open >= 0) {
+			int close = open + 1;
+			while(close < source.length() && isKeyChar(source.charAt(close)))
+				close++;
+			if(close > open + 1 && close < source.length() && source.charAt(close) == '}') {
+				literals.add(source.substring(start, open).getBytes(StandardCharsets.UTF_8));
+				keys.add(source.substring(open + 1, close));
+				start = close + 1;
+			}
+			open = source.indexOf('{', close);
+		}
+		literals.add(source.substring(start).getBytes(StandardCharsets.UTF_8));
+		return new Template(literals.toArray(new byte[literals.size()][]), keys.toArray(new String[keys.size()]), escape);
+	}
+	
+	/**
+	 * Returns the size in bytes of the template text, without any values
+	 *
+	 * @return
+	 */
+	public int getSize() { return this.size; }
+	
+	/**
+	 * Renders the template with the provided values straight to a stream as UTF-8
+	 * Names that are missing from the model render as nothing. A name containing <code>.</code> that is not in the model
+	 * is looked up through nested Maps, so <code>{REQ.PATH}</code> also reads <code>model.get("REQ").get("PATH")</code>.
+	 *
+	 * @param model
+	 * @param os
+	 * @throws IOException
+	 */
+	public void render(Map<String, ?> model, OutputStream os) throws IOException {
+		for(int i = 0; i < this.keys.length; i++) {
+			os.write(this.literals[i]);
+			Object value = lookup(model, this.keys[i]);
+			if(value != null)
+				os.write((this.escape ? escape(value.toString()) : value.toString()).getBytes(StandardCharsets.UTF_8));
+		}
+		os.write(this.literals[this.keys.length]);
+	}
+	
+	/**
+	 * Renders the template with the provided values to a String
+	 *
+	 * @param model
+	 * @return
+	 */
+	public String render(Map<String, ?> model) {
+		ByteArrayOutputStream os = new ByteArrayOutputStream(this.size + 64);
+		try {
+			this.render(model, os);
+		} catch(IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return new String(os.toByteArray(), StandardCharsets.UTF_8);
+	}
+	
+	private static Object lookup(Map<String, ?> model, String key) {
+		if(model == null)
+			return null;
+		Object value = model.get(key);
+		int dot = key.indexOf('.');
+		if(value != null || dot < 0)
+			return value;
+		Object nested = model.get(key.substring(0, dot));
+		if(nested instanceof Map) {
+			@SuppressWarnings("unchecked")
+			Map<String, ?> map = (Map<String, ?>) nested;
+			return lookup(map, key.substring(dot + 1));
+		}
+		return null;
+	}
+	
+	private static String escape(String value) {
+		StringBuilder sb = null;
+		for(int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			String replacement;
+			switch(c) {
+				case '&': replacement = "&amp;"; break;
+				case '<': replacement = "&lt;"; break;
+				case '>': replacement = "&gt;"; break;
+				case '"': replacement = "&quot;"; break;
+				case '\'': replacement = "&#39;"; break;
+				default: replacement = null;
+			}
+			if(replacement != null && sb == null)
+				sb = new StringBuilder(value.length() + 16).append(value, 0, i);
+			if(sb != null) {
+				if(replacement != null) sb.append(replacement);
+				else sb.append(c);
+			}
+		}
+		return sb != null ? sb.toString() : value;
+	}
+	
+	private static boolean isKeyChar(char c) {
+		return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_' || c == '.';
+	}
+}
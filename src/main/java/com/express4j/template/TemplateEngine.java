@@ -0,0 +1,135 @@
+package com.express4j.template;
+
+import com.express4j.exception.TraversalAttackPreventionException;
+import lombok.Getter;
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compiles templates once and keeps them until their file changes.
+ * Files are only checked on disk again once <code>revalidateAfter</code> milliseconds have passed since the last check.
+ */
+public class TemplateEngine {
+	@Getter private File directory;
+	@Getter private long revalidateAfter;
+	
+	private ConcurrentHashMap<String, Compiled> templates;
+	
+	public TemplateEngine(File directory) { this(directory, 1000); }
+	public TemplateEngine(File directory, long revalidateAfter) {
+		this.directory = directory;
+		this.revalidateAfter = revalidateAfter;
+		this.templates = new ConcurrentHashMap<String, Compiled>();
+	}
+	
+	/**
+	 * Returns the compiled template with the provided name, relative to the template directory
+	 *
+	 * @param name
+	 * @return
+	 * @throws FileNotFoundException
+	 * @throws IOException
+	 * @throws TraversalAttackPreventionException
+	 */
+	public Template get(String name) throws FileNotFoundException, IOException, TraversalAttackPreventionException {
+		for(String segment : name.replace('\\', '/').split("/"))
+			if(segment.equals(".."))
+				throw new TraversalAttackPreventionException("Templates must be within the template directory.");
+		return this.get(new File(this.directory, name));
+	}
+	
+	/**
+	 * Returns the compiled template for the provided file, compiling it again if it has changed
+	 *
+	 * @param file
+	 * @return
+	 * @throws FileNotFoundException
+	 * @throws IOException
+	 */
+	public Template get(File file) throws FileNotFoundException, IOException {
+		String key = file.getPath();
+		long now = System.nanoTime();
+		Compiled compiled = this.templates.get(key);
+		if(compiled != null) {
+			if(this.revalidateAfter <= 0 || now - compiled.checked < TimeUnit.MILLISECONDS.toNanos(this.revalidateAfter))
+				return compiled.template;
+			if(file.lastModified() == compiled.lastModified) {
+				compiled.checked = now;
+				return compiled.template;
+			}
+		}
+		if(!file.isFile())
+			throw new FileNotFoundException(file.getPath());
+		long modified = file.lastModified();
+		InputStream in = new FileInputStream(file);
+		try {
+			compiled = new Compiled(compile(in, file.getName()), modified, now);
+		} finally {
+			in.close();
+		}
+		this.templates.put(key, compiled);
+		return compiled.template;
+	}
+	
+	/**
+	 * Returns the compiled template for a classpath resource, or <code>null</code> if it does not exist
+	 * Resources can not change, so they are compiled once.
+	 *
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 */
+	public Template resource(String path) throws IOException {
+		String key = "classpath:" + path;
+		Compiled compiled = this.templates.get(key);
+		if(compiled == null) {
+			InputStream in = getClass().getResourceAsStream(path);
+			if(in == null)
+				return null;
+			try {
+				compiled = new Compiled(compile(in, path), 0, 0);
+			} finally {
+				in.close();
+			}
+			this.templates.put(key, compiled);
+		}
+		return compiled.template;
+	}
+	
+	/**
+	 * Removes a template from the cache
+	 *
+	 * @param file
+	 */
+	public void invalidate(File file) { this.templates.remove(file.getPath()); }
+	
+	/**
+	 * Removes every template from the cache
+	 */
+	public void clear() { this.templates.clear(); }
+	
+	private static Template compile(InputStream in, String name) throws IOException {
+		String lower = name.toLowerCase();
+		return Template.compile(IOUtils.toString(in, StandardCharsets.UTF_8), lower.endsWith(".html") || lower.endsWith(".htm"));
+	}
+	
+	private static class Compiled {
+		private Template template;
+		private long lastModified;
+		private volatile long checked;
+		
+		private Compiled(Template template, long lastModified, long checked) {
+			this.template = template;
+			this.lastModified = lastModified;
+			this.checked = checked;
+		}
+	}
+}
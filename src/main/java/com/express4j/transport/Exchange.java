@@ -0,0 +1,105 @@
+package com.express4j.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single HTTP request and its response, as seen by <code>HttpRequest</code> and <code>HttpResponse</code>.
+ * Mirrors the semantics of <code>com.sun.net.httpserver.HttpExchange</code> so any transport can sit behind the same request and response objects.
+ * Header maps must look names up case-insensitively.
+ */
+public interface Exchange {
+	/**
+	 * Returns the request method, such as <code>GET</code>
+	 *
+	 * @return
+	 */
+	String getRequestMethod();
+	
+	/**
+	 * Returns the request target exactly as it was sent, including the query string
+	 *
+	 * @return
+	 */
+	String getRequestURI();
+	
+	/**
+	 * Returns the protocol of the request, such as <code>HTTP/1.1</code>
+	 *
+	 * @return
+	 */
+	String getProtocol();
+	
+	/**
+	 * Returns the address of the client
+	 *
+	 * @return
+	 */
+	InetSocketAddress getRemoteAddress();
+	
+	/**
+	 * Returns the address the request was received on
+	 *
+	 * @return
+	 */
+	InetSocketAddress getLocalAddress();
+	
+	/**
+	 * Returns the request headers
+	 *
+	 * @return
+	 */
+	Map<String, List<String>> getRequestHeaders();
+	
+	/**
+	 * Returns a stream over the request body
+	 *
+	 * @return
+	 */
+	InputStream getRequestBody();
+	
+	/**
+	 * Returns the mutable response headers, sent by <code>Exchange.sendResponseHeaders()</code>
+	 *
+	 * @return
+	 */
+	Map<String, List<String>> getResponseHeaders();
+	
+	/**
+	 * Sends the status line and response headers
+	 * A length of 0 sends a chunked body of any size, -1 sends no body at all.
+	 *
+	 * @param status
+	 * @param length
+	 * @throws IOException
+	 */
+	void sendResponseHeaders(int status, long length) throws IOException;
+	
+	/**
+	 * Returns a stream over the response body, closing it completes the response
+	 *
+	 * @return
+	 */
+	OutputStream getResponseBody();
+	
+	/**
+	 * Returns the status sent with the response headers, or -1 if they have not been sent yet
+	 *
+	 * @return
+	 */
+	int getResponseCode();
+	
+	/**
+	 * Completes the exchange, closing both body streams
+	 */
+	void close();
+	
+	/**
+	 * Gives up on the exchange and drops the connection, without waiting on a write that is still in progress
+	 */
+	void abort();
+}
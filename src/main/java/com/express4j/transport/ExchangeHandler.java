@@ -0,0 +1,13 @@
+package com.express4j.transport;
+
+public interface ExchangeHandler {
+	void handle(Exchange exchange);
+	
+	/**
+	 * Reports an error the transport ran into outside of any handler, such as a failed accept
+	 *
+	 * @param message
+	 * @param error
+	 */
+	void error(String message, Throwable error);
+}
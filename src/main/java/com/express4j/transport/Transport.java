@@ -0,0 +1,29 @@
+package com.express4j.transport;
+
+import com.express4j.service.obj.ServerSettings;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * An HTTP server that accepts connections and hands every request to an <code>ExchangeHandler</code>.
+ */
+public interface Transport {
+	/**
+	 * Binds to the provided address and starts accepting requests
+	 * Requests are handled on the executor, or on the transport's own threads when it is <code>null</code>.
+	 *
+	 * @param address
+	 * @param settings
+	 * @param handler
+	 * @param executor
+	 * @throws IOException
+	 */
+	void start(InetSocketAddress address, ServerSettings settings, ExchangeHandler handler, ExecutorService executor) throws IOException;
+	
+	/**
+	 * Stops accepting requests and closes every connection
+	 */
+	void stop();
+}
@@ -0,0 +1,52 @@
+package com.express4j.transport.jdk;
+
+import com.express4j.transport.Exchange;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adapts an <code>HttpExchange</code> from the JDK's HTTP server.
+ */
+public class JdkExchange implements Exchange {
+	private HttpExchange exchange;
+	
+	public JdkExchange(HttpExchange exchange) {
+		this.exchange = exchange;
+	}
+	
+	@Override
+	public String getRequestMethod() { return this.exchange.getRequestMethod(); }
+	@Override
+	public String getRequestURI() { return this.exchange.getRequestURI().toString(); }
+	@Override
+	public String getProtocol() { return this.exchange.getProtocol(); }
+	@Override
+	public InetSocketAddress getRemoteAddress() { return this.exchange.getRemoteAddress(); }
+	@Override
+	public InetSocketAddress getLocalAddress() { return this.exchange.getLocalAddress(); }
+	@Override
+	public Map<String, List<String>> getRequestHeaders() { return this.exchange.getRequestHeaders(); }
+	@Override
+	public InputStream getRequestBody() { return this.exchange.getRequestBody(); }
+	@Override
+	public Map<String, List<String>> getResponseHeaders() { return this.exchange.getResponseHeaders(); }
+	@Override
+	public void sendResponseHeaders(int status, long length) throws IOException { this.exchange.sendResponseHeaders(status, length); }
+	@Override
+	public OutputStream getResponseBody() { return this.exchange.getResponseBody(); }
+	@Override
+	public int getResponseCode() { return this.exchange.getResponseCode(); }
+	@Override
+	public void close() { this.exchange.close(); }
+	@Override
+	public void abort() {
+		// The JDK server does not expose its connections, closing the exchange is as close as it gets
+		this.exchange.close();
+	}
+}
@@ -0,0 +1,38 @@
+package com.express4j.transport.jdk;
+
+import com.express4j.service.obj.ServerSettings;
+import com.express4j.transport.ExchangeHandler;
+import com.express4j.transport.Transport;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Serves requests with the HTTP server bundled with the JDK.
+ */
+public class JdkTransport implements Transport {
+	private HttpServer server;
+	
+	@Override
+	public void start(InetSocketAddress address, ServerSettings settings, final ExchangeHandler handler, ExecutorService executor) throws IOException {
+		this.server = HttpServer.create(address, settings.getBacklog());
+		this.server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) {
+				handler.handle(new JdkExchange(exchange));
+			}
+		});
+		this.server.setExecutor(executor);
+		this.server.start();
+	}
+	
+	@Override
+	public void stop() {
+		if(this.server != null)
+			this.server.stop(0);
+	}
+}
@@ -0,0 +1,112 @@
+package com.express4j.transport.memory;
+
+import com.express4j.metrics.Histogram;
+import com.express4j.utils.ThreadUtils;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives a <code>MemoryTransport</code> from several threads and reports throughput and latency
+ * Each thread sends one request at a time and waits for its response, cycling through the provided requests.
+ * Example: <code>new LoadDriver(transport).run(MemoryRequest.get("/hello"))</code>
+ */
+public class LoadDriver {
+	private final MemoryTransport transport;
+	
+	@Getter @Setter private int threads;
+	@Getter @Setter private long requests;
+	@Getter @Setter private long warmup;
+	
+	public LoadDriver(MemoryTransport transport) {
+		this.transport = transport;
+		this.threads = Runtime.getRuntime().availableProcessors();
+		this.requests = 100000;
+		this.warmup = 10000;
+	}
+	
+	/**
+	 * Sends the warmup requests, then measures the configured number of requests
+	 * Responses with a 5xx status, no status at all, or that failed count as errors.
+	 *
+	 * @param requests
+	 * @return
+	 * @throws IOException if a driver thread is interrupted
+	 */
+	public LoadReport run(MemoryRequest... requests) throws IOException {
+		if(requests.length == 0)
+			throw new IllegalArgumentException("At least one request is required.");
+		if(this.warmup > 0)
+			this.drive(requests, this.warmup, null);
+		Histogram latency = new Histogram();
+		LongAdder errors = new LongAdder();
+		long start = System.nanoTime();
+		this.drive(requests, this.requests, new Recorder(latency, errors));
+		long elapsed = System.nanoTime() - start;
+		return new LoadReport(this.threads, this.requests, errors.sum(), elapsed, latency.snapshot());
+	}
+	
+	private void drive(final MemoryRequest[] requests, final long total, final Recorder recorder) throws IOException {
+		final AtomicLong next = new AtomicLong();
+		final CountDownLatch done = new CountDownLatch(this.threads);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		ThreadFactory factory = ThreadUtils.namedFactory("Express4J-load");
+		for(int i = 0; i < this.threads; i++)
+			factory.newThread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						long n;
+						while((n = next.getAndIncrement()) < total) {
+							long start = System.nanoTime();
+							int status;
+							try {
+								status = LoadDriver.this.transport.submit(requests[(int) (n % requests.length)]).get().getStatus();
+							} catch(InterruptedException e) {
+								throw e;
+							} catch(Exception e) {
+								status = -1;
+							}
+							if(recorder != null)
+								recorder.record(status, System.nanoTime() - start);
+						}
+					} catch(Throwable e) {
+						failure.compareAndSet(null, e);
+					} finally {
+						done.countDown();
+					}
+				}
+			}).start();
+		try {
+			done.await();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		if(failure.get() != null)
+			throw new IOException("Load driver thread failed", failure.get());
+	}
+	
+	private static class Recorder {
+		private final Histogram latency;
+		private final LongAdder errors;
+		
+		Recorder(Histogram latency, LongAdder errors) {
+			this.latency = latency;
+			this.errors = errors;
+		}
+		
+		void record(int status, long nanos) {
+			this.latency.record(nanos);
+			if(status < 100 || status >= 500)
+				this.errors.increment();
+		}
+	}
+}
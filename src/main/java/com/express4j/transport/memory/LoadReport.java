@@ -0,0 +1,45 @@
+package com.express4j.transport.memory;
+
+import com.express4j.metrics.Histogram;
+import lombok.Getter;
+
+/**
+ * The outcome of a <code>LoadDriver</code> run
+ */
+public class LoadReport {
+	@Getter private final int threads;
+	@Getter private final long requests;
+	@Getter private final long errors;
+	@Getter private final long elapsedNanos;
+	@Getter private final Histogram.Snapshot latency;
+	
+	LoadReport(int threads, long requests, long errors, long elapsedNanos, Histogram.Snapshot latency) {
+		this.threads = threads;
+		this.requests = requests;
+		this.errors = errors;
+		this.elapsedNanos = elapsedNanos;
+		this.latency = latency;
+	}
+	
+	/**
+	 * Returns how many requests were handled per second
+	 *
+	 * @return
+	 */
+	public double getThroughput() { return this.elapsedNanos > 0 ? this.requests * 1e9 / this.elapsedNanos : 0; }
+	
+	/**
+	 * Returns the latency below which the provided fraction of requests completed, in nanoseconds
+	 *
+	 * @param quantile such as 0.99
+	 * @return
+	 */
+	public long getPercentile(double quantile) { return this.latency.getPercentile(quantile); }
+	
+	@Override
+	public String toString() {
+		return String.format("%d requests on %d threads in %.2f ms, %.0f req/s, %d errors, latency us: mean %.1f, p50 %.1f, p90 %.1f, p99 %.1f, p99.9 %.1f, max %.1f",
+			this.requests, this.threads, this.elapsedNanos / 1e6, this.getThroughput(), this.errors,
+			this.latency.getMean() / 1e3, this.getPercentile(0.5) / 1e3, this.getPercentile(0.9) / 1e3, this.getPercentile(0.99) / 1e3, this.getPercentile(0.999) / 1e3, this.latency.getMax() / 1e3);
+	}
+}
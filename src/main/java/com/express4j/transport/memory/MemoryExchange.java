@@ -0,0 +1,129 @@
+package com.express4j.transport.memory;
+
+import com.express4j.transport.Exchange;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An exchange that reads a <code>MemoryRequest</code> and captures the response in memory
+ * The exchange completes its future once the response body is closed, as a socket based exchange would finish the response.
+ */
+public class MemoryExchange implements Exchange {
+	private final MemoryRequest request;
+	private final InetSocketAddress localAddress;
+	private final CompletableFuture<MemoryResponse> future = new CompletableFuture<MemoryResponse>();
+	private final long start = System.nanoTime();
+	private final InputStream requestBody;
+	private final TreeMap<String, List<String>> responseHeaders = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+	private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+	private final AtomicBoolean completed = new AtomicBoolean();
+	private volatile int responseCode = -1;
+	private boolean discard = false;
+	
+	private final OutputStream responseBody = new OutputStream() {
+		@Override
+		public void write(int b) throws IOException {
+			this.write(new byte[] { (byte) b }, 0, 1);
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if(MemoryExchange.this.responseCode == -1)
+				throw new IOException("Response headers have not been sent.");
+			if(MemoryExchange.this.completed.get())
+				throw new IOException("Response has already been completed.");
+			if(!MemoryExchange.this.discard)
+				MemoryExchange.this.body.write(b, off, len);
+		}
+		
+		@Override
+		public void close() {
+			MemoryExchange.this.complete();
+		}
+	};
+	
+	public MemoryExchange(MemoryRequest request, InetSocketAddress localAddress) {
+		this.request = request;
+		this.localAddress = localAddress;
+		this.requestBody = new ByteArrayInputStream(request.getBody());
+	}
+	
+	/**
+	 * Returns a future completed with the captured response once the exchange is done
+	 *
+	 * @return
+	 */
+	public CompletableFuture<MemoryResponse> getResponse() { return this.future; }
+	
+	@Override
+	public String getRequestMethod() { return this.request.getMethod(); }
+	@Override
+	public String getRequestURI() { return this.request.getUri(); }
+	@Override
+	public String getProtocol() { return this.request.getProtocol(); }
+	@Override
+	public InetSocketAddress getRemoteAddress() { return this.request.getRemoteAddress(); }
+	@Override
+	public InetSocketAddress getLocalAddress() { return this.localAddress; }
+	@Override
+	public Map<String, List<String>> getRequestHeaders() { return this.request.getHeaders(); }
+	@Override
+	public InputStream getRequestBody() { return this.requestBody; }
+	@Override
+	public Map<String, List<String>> getResponseHeaders() { return this.responseHeaders; }
+	@Override
+	public OutputStream getResponseBody() { return this.responseBody; }
+	@Override
+	public int getResponseCode() { return this.responseCode; }
+	
+	@Override
+	public void sendResponseHeaders(int status, long length) throws IOException {
+		if(this.responseCode != -1)
+			throw new IOException("Response headers have already been sent.");
+		boolean bodyless = status < 200 || status == 204 || status == 304;
+		this.discard = bodyless || length < 0 || this.request.getMethod().equals("HEAD");
+		if(!bodyless && length != 0)
+			this.responseHeaders.put("Content-Length", new ArrayList<String>(Collections.singletonList(Long.toString(Math.max(0, length)))));
+		this.responseCode = status;
+	}
+	
+	@Override
+	public void close() {
+		this.complete();
+	}
+	
+	@Override
+	public void abort() {
+		this.complete();
+	}
+	
+	/**
+	 * Fails the exchange, for errors that escaped the handler
+	 *
+	 * @param error
+	 */
+	void fail(Throwable error) {
+		if(this.completed.compareAndSet(false, true))
+			this.future.completeExceptionally(error);
+	}
+	
+	private void complete() {
+		if(this.completed.compareAndSet(false, true)) {
+			TreeMap<String, List<String>> headers = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+			headers.putAll(this.responseHeaders);
+			this.future.complete(new MemoryResponse(this.responseCode, Collections.unmodifiableMap(headers), this.body.toByteArray(), System.nanoTime() - this.start));
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package com.express4j.transport.memory;
+
+import lombok.Getter;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A synthetic request for the <code>MemoryTransport</code>
+ * Requests are reusable, every submission reads the same headers and body.
+ */
+public class MemoryRequest {
+	private static final InetSocketAddress CLIENT = InetSocketAddress.createUnresolved("127.0.0.1", 50000);
+	
+	@Getter private String method;
+	@Getter private String uri;
+	@Getter private String protocol;
+	@Getter private InetSocketAddress remoteAddress;
+	@Getter private byte[] body;
+	private final TreeMap<String, List<String>> headers = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+	
+	public MemoryRequest(String method, String uri) {
+		this.method = method;
+		this.uri = uri;
+		this.protocol = "HTTP/1.1";
+		this.remoteAddress = CLIENT;
+		this.body = new byte[0];
+		this.header("Host", "localhost");
+	}
+	
+	public static MemoryRequest get(String uri) { return new MemoryRequest("GET", uri); }
+	public static MemoryRequest head(String uri) { return new MemoryRequest("HEAD", uri); }
+	public static MemoryRequest delete(String uri) { return new MemoryRequest("DELETE", uri); }
+	public static MemoryRequest post(String uri, String body) { return new MemoryRequest("POST", uri).body(body); }
+	public static MemoryRequest put(String uri, String body) { return new MemoryRequest("PUT", uri).body(body); }
+	
+	/**
+	 * Adds a value to a request header
+	 *
+	 * @param name
+	 * @param value
+	 * @return
+	 */
+	public MemoryRequest header(String name, String value) {
+		List<String> values = this.headers.get(name);
+		if(values == null)
+			this.headers.put(name, values = new ArrayList<String>(1));
+		values.add(value);
+		return this;
+	}
+	
+	/**
+	 * Sets the request body and its Content-Length header
+	 *
+	 * @param body
+	 * @return
+	 */
+	public MemoryRequest body(byte[] body) {
+		this.body = body;
+		this.headers.put("Content-Length", new ArrayList<String>(Collections.singletonList(Integer.toString(body.length))));
+		return this;
+	}
+	
+	/**
+	 * Sets the request body, encoded as UTF-8
+	 *
+	 * @param body
+	 * @return
+	 */
+	public MemoryRequest body(String body) { return this.body(body.getBytes(StandardCharsets.UTF_8)); }
+	
+	/**
+	 * Sets the protocol sent with the request, HTTP/1.1 by default
+	 *
+	 * @param protocol
+	 * @return
+	 */
+	public MemoryRequest protocol(String protocol) {
+		this.protocol = protocol;
+		return this;
+	}
+	
+	/**
+	 * Sets the address the request appears to come from
+	 *
+	 * @param address
+	 * @return
+	 */
+	public MemoryRequest from(InetSocketAddress address) {
+		this.remoteAddress = address;
+		return this;
+	}
+	
+	/**
+	 * Returns a read-only view of the request headers
+	 *
+	 * @return
+	 */
+	public Map<String, List<String>> getHeaders() { return Collections.unmodifiableMap(this.headers); }
+}
@@ -0,0 +1,43 @@
+package com.express4j.transport.memory;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The response captured by the <code>MemoryTransport</code> for one request
+ * The body is exactly what the handler wrote, so compressed responses stay compressed.
+ */
+public class MemoryResponse {
+	@Getter private final int status;
+	@Getter private final Map<String, List<String>> headers;
+	@Getter private final byte[] body;
+	@Getter private final long nanos;
+	
+	MemoryResponse(int status, Map<String, List<String>> headers, byte[] body, long nanos) {
+		this.status = status;
+		this.headers = headers;
+		this.body = body;
+		this.nanos = nanos;
+	}
+	
+	/**
+	 * Returns the first value of a response header, or <code>null</code> if it was not sent
+	 *
+	 * @param name
+	 * @return
+	 */
+	public String getHeader(String name) {
+		List<String> values = this.headers.get(name);
+		return values != null && !values.isEmpty() ? values.get(0) : null;
+	}
+	
+	/**
+	 * Returns the body decoded as UTF-8
+	 *
+	 * @return
+	 */
+	public String getBodyAsString() { return new String(this.body, StandardCharsets.UTF_8); }
+}
@@ -0,0 +1,106 @@
+package com.express4j.transport.memory;
+
+import com.express4j.service.obj.ServerSettings;
+import com.express4j.transport.ExchangeHandler;
+import com.express4j.transport.Transport;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A transport without sockets, requests are submitted by code and their responses captured in memory
+ * Useful to test handlers and to measure the framework's own overhead without the network in the way.
+ * Start it with <code>TransportType.MEMORY</code> and reach it through <code>Express4J.getTransport()</code>, or wrap a handler directly.
+ */
+public class MemoryTransport implements Transport {
+	private volatile ExchangeHandler handler;
+	private volatile ExecutorService executor;
+	private volatile InetSocketAddress address = InetSocketAddress.createUnresolved("localhost", 0);
+	
+	public MemoryTransport() {}
+	
+	/**
+	 * Creates a transport that is already running, handling every request on the thread that submits it
+	 *
+	 * @param handler
+	 */
+	public MemoryTransport(ExchangeHandler handler) {
+		this.handler = handler;
+	}
+	
+	@Override
+	public void start(InetSocketAddress address, ServerSettings settings, ExchangeHandler handler, ExecutorService executor) {
+		this.address = address;
+		this.executor = executor;
+		this.handler = handler;
+	}
+	
+	@Override
+	public void stop() {
+		this.handler = null;
+		this.executor = null;
+	}
+	
+	public boolean isRunning() { return this.handler != null; }
+	
+	/**
+	 * Dispatches a request and returns a future completed with its response
+	 * Requests run on the executor the transport was started with, or on the calling thread without one.
+	 *
+	 * @param request
+	 * @return
+	 */
+	public CompletableFuture<MemoryResponse> submit(MemoryRequest request) {
+		final ExchangeHandler handler = this.handler;
+		final MemoryExchange exchange = new MemoryExchange(request, this.address);
+		if(handler == null) {
+			exchange.fail(new IllegalStateException("The transport is not running."));
+			return exchange.getResponse();
+		}
+		Runnable task = new Runnable() {
+			@Override
+			public void run() {
+				try {
+					handler.handle(exchange);
+				} catch(Throwable e) {
+					exchange.fail(e);
+				}
+			}
+		};
+		ExecutorService executor = this.executor;
+		if(executor == null)
+			task.run();
+		else
+			try {
+				executor.execute(task);
+			} catch(RejectedExecutionException e) {
+				exchange.fail(e);
+			}
+		return exchange.getResponse();
+	}
+	
+	/**
+	 * Dispatches a request and waits for its response
+	 *
+	 * @param request
+	 * @return
+	 * @throws IOException
+	 */
+	public MemoryResponse send(MemoryRequest request) throws IOException {
+		try {
+			return this.submit(request).get();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch(ExecutionException e) {
+			if(e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new IOException(e.getCause());
+		}
+	}
+}
@@ -0,0 +1,172 @@
+package com.express4j.transport.nio;
+
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A thread multiplexing many idle or reading connections on one selector, and accepting new ones when it owns a listening socket.
+ * Other threads never touch the selector directly, they queue tasks which are run between selects.
+ */
+class EventLoop implements Runnable {
+	private NioTransport transport;
+	private Selector selector;
+	private Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+	private volatile boolean running = true;
+	private long swept = System.currentTimeMillis();
+	
+	EventLoop(NioTransport transport) throws IOException {
+		this.transport = transport;
+		this.selector = Selector.open();
+	}
+	
+	/**
+	 * Starts watching a newly accepted connection
+	 *
+	 * @param channel
+	 */
+	void register(final SocketChannel channel) {
+		this.execute(new Runnable() {
+			@Override
+			public void run() {
+				EventLoop.this.attach(channel);
+			}
+		});
+	}
+	
+	/**
+	 * Accepts connections on the provided socket from this loop, must be called before the loop is started
+	 *
+	 * @param server
+	 * @throws IOException
+	 */
+	void listen(ServerSocketChannel server) throws IOException {
+		server.configureBlocking(false);
+		server.register(this.selector, SelectionKey.OP_ACCEPT);
+	}
+	
+	/**
+	 * Hands a connection back to this loop once its request has been answered, so it can wait for the next one
+	 *
+	 * @param connection
+	 */
+	void resume(final NioConnection connection) {
+		this.execute(new Runnable() {
+			@Override
+			public void run() {
+				connection.resume();
+			}
+		});
+	}
+	
+	void stop() {
+		this.running = false;
+		this.selector.wakeup();
+	}
+	
+	@Override
+	public void run() {
+		try {
+			while(this.running) {
+				this.selector.select(1000);
+				Runnable task;
+				while((task = this.tasks.poll()) != null)
+					try {
+						task.run();
+					} catch(RuntimeException e) {
+						this.transport.handler.error("Event loop task failed", e);
+					}
+				Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+				while(keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					// A failure on one key only costs that connection, never the loop and every other connection on it
+					try {
+						if(!key.isValid())
+							continue;
+						if(key.isAcceptable())
+							this.accept((ServerSocketChannel) key.channel());
+						else if(key.isReadable())
+							((NioConnection) key.attachment()).onReadable();
+					} catch(RuntimeException e) {
+						this.transport.handler.error("Could not handle a connection event", e);
+						NioConnection connection = (NioConnection) key.attachment();
+						if(connection != null) {
+							if(connection.isIdle())
+								connection.closeIdle();
+							else
+								connection.close();
+						}
+					}
+				}
+				long now = System.currentTimeMillis();
+				if(now - this.swept >= 1000) {
+					this.swept = now;
+					try {
+						this.sweep(now);
+					} catch(RuntimeException e) {
+						this.transport.handler.error("Could not close idle connections", e);
+					}
+				}
+			}
+		} catch(IOException e) {
+			this.transport.handler.error("Event loop stopped", e);
+		} finally {
+			for(SelectionKey key : this.selector.keys())
+				if(key.attachment() != null)
+					((NioConnection) key.attachment()).close();
+			try {
+				this.selector.close();
+			} catch(IOException e) {}
+		}
+	}
+	
+	private void accept(ServerSocketChannel server) {
+		SocketChannel channel;
+		try {
+			while((channel = server.accept()) != null)
+				this.attach(channel);
+		} catch(IOException e) {
+			if(this.running)
+				this.transport.handler.error("Could not accept a connection", e);
+		}
+	}
+	
+	private void attach(SocketChannel channel) {
+		try {
+			channel.configureBlocking(false);
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			SelectionKey key = channel.register(this.selector, SelectionKey.OP_READ);
+			key.attach(new NioConnection(this.transport, this, channel, key));
+		} catch(IOException e) {
+			try {
+				channel.close();
+			} catch(IOException ignored) {}
+		}
+	}
+	
+	private void execute(Runnable task) {
+		this.tasks.add(task);
+		this.selector.wakeup();
+	}
+	
+	/**
+	 * Closes connections that have been idle for longer than the keep-alive timeout
+	 *
+	 * @param now
+	 */
+	private void sweep(long now) {
+		long timeout = this.transport.settings.getKeepAlive();
+		for(SelectionKey key : this.selector.keys()) {
+			NioConnection connection = (NioConnection) key.attachment();
+			if(connection != null && connection.isIdle() && now - connection.lastActive > timeout)
+				connection.closeIdle();
+		}
+	}
+}
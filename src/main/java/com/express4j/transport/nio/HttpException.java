@@ -0,0 +1,13 @@
+package com.express4j.transport.nio;
+
+/**
+ * A protocol error answered with the provided status before the connection is closed.
+ */
+class HttpException extends Exception {
+	final int status;
+	
+	HttpException(int status, String message) {
+		super(message);
+		this.status = status;
+	}
+}
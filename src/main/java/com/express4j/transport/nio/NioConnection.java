@@ -0,0 +1,295 @@
+package com.express4j.transport.nio;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A client connection served by an <code>EventLoop</code>.
+ * While no request is in flight the connection belongs to its event loop. Once a request head has been parsed the connection is handed to a worker,
+ * which reads the body and writes the response with blocking calls, waiting on a temporary selector whenever the socket is not ready.
+ */
+class NioConnection {
+	private static final byte[] SERVICE_UNAVAILABLE = "HTTP/1.1 503 Service Unavailable\r\nContent-Length: 0\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+	
+	final NioTransport transport;
+	final SocketChannel channel;
+	final InetSocketAddress remote;
+	final InetSocketAddress local;
+	volatile long lastActive;
+	
+	private EventLoop loop;
+	private SelectionKey key;
+	private ByteBuffer in;
+	private boolean busy = false;
+	private volatile boolean closed = false;
+	
+	NioConnection(NioTransport transport, EventLoop loop, SocketChannel channel, SelectionKey key) throws IOException {
+		this.transport = transport;
+		this.loop = loop;
+		this.channel = channel;
+		this.key = key;
+		this.remote = (InetSocketAddress) channel.getRemoteAddress();
+		this.local = (InetSocketAddress) channel.getLocalAddress();
+		this.lastActive = System.currentTimeMillis();
+	}
+	
+	/**
+	 * Called by the event loop when bytes are waiting on an idle connection
+	 */
+	void onReadable() {
+		try {
+			int count = this.read();
+			if(count < 0) {
+				this.closeIdle();
+				return;
+			}
+			// Only bytes count as activity, a connection that never sends any is left for the idle sweep
+			if(count > 0)
+				this.lastActive = System.currentTimeMillis();
+		} catch(IOException e) {
+			this.closeIdle();
+			return;
+		}
+		RequestHead head = this.parse();
+		if(head != null) {
+			this.busy = true;
+			this.key.interestOps(0);
+			if(!this.transport.dispatch(this.task(head)))
+				this.reject();
+		}
+	}
+	
+	/**
+	 * Called on the event loop once a worker hands the connection back
+	 */
+	void resume() {
+		this.busy = false;
+		if(this.closed || !this.key.isValid()) {
+			this.closeIdle();
+			return;
+		}
+		this.lastActive = System.currentTimeMillis();
+		this.key.interestOps(SelectionKey.OP_READ);
+	}
+	
+	/**
+	 * Returns <code>true</code> if the connection is waiting for a request on its event loop, <code>false</code> while a request is in flight.
+	 *
+	 * @return
+	 */
+	boolean isIdle() { return !this.busy; }
+	
+	/**
+	 * Handles requests on a worker thread, continuing with pipelined requests that are already buffered
+	 *
+	 * @param head
+	 */
+	void process(RequestHead head) {
+		while(head != null) {
+			NioExchange exchange = new NioExchange(this, head);
+			try {
+				this.transport.handler.handle(exchange);
+			} catch(Throwable e) {
+				this.transport.handler.error("Unhandled error in a request from " + this.remote, e);
+				exchange.abort();
+			}
+			// A response still being written from another thread continues the connection once it completes
+			if(!exchange.release())
+				return;
+			head = this.next(exchange);
+		}
+	}
+	
+	/**
+	 * Called when a response completes after its handler has returned
+	 *
+	 * @param exchange
+	 */
+	void completed(NioExchange exchange) {
+		RequestHead head = this.next(exchange);
+		if(head != null && !this.transport.dispatch(this.task(head)))
+			this.reject();
+	}
+	
+	/**
+	 * Prepares the connection for the next request once an exchange is done
+	 * Returns the next pipelined request if it is already buffered, otherwise hands the connection back to its event loop and returns <code>null</code>.
+	 *
+	 * @param exchange
+	 * @return
+	 */
+	private RequestHead next(NioExchange exchange) {
+		try {
+			if(this.closed || !exchange.isReusable() || !exchange.drain()) {
+				this.closeIdle();
+				return null;
+			}
+		} catch(IOException e) {
+			this.closeIdle();
+			return null;
+		}
+		this.lastActive = System.currentTimeMillis();
+		RequestHead head = this.parse();
+		if(head == null && !this.closed) {
+			this.releaseBuffer();
+			this.loop.resume(this);
+		}
+		return head;
+	}
+	
+	/**
+	 * Parses the next request head from the read buffer, answering malformed requests with an error and closing the connection
+	 *
+	 * @return
+	 */
+	private RequestHead parse() {
+		if(this.in == null)
+			return null;
+		try {
+			RequestHead head = RequestHead.parse(this.in, this.transport.maxHeaderSize);
+			if(head == null)
+				this.releaseBuffer();
+			return head;
+		} catch(HttpException e) {
+			try {
+				byte[] response = ("HTTP/1.1 " + e.status + " " + NioExchange.reason(e.status) + "\r\nContent-Length: 0\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+				this.write(new ByteBuffer[] { ByteBuffer.wrap(response) });
+			} catch(IOException ignored) {}
+			this.closeIdle();
+			return null;
+		}
+	}
+	
+	/**
+	 * Reads what is available from the socket into the read buffer without blocking
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	private int read() throws IOException {
+		if(this.in == null) {
+			this.in = this.transport.buffers.acquire();
+			this.in.flip();
+		}
+		this.in.compact();
+		try {
+			return this.channel.read(this.in);
+		} finally {
+			this.in.flip();
+		}
+	}
+	
+	/**
+	 * Returns the read buffer holding the unread bytes of the connection, reading more from the socket if it is empty
+	 * Blocks until bytes arrive, returns <code>null</code> if the client closed the connection.
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	ByteBuffer fill() throws IOException {
+		if(this.in != null && this.in.hasRemaining())
+			return this.in;
+		int count;
+		while((count = this.read()) == 0)
+			this.await(SelectionKey.OP_READ);
+		return count > 0 ? this.in : null;
+	}
+	
+	/**
+	 * Writes every buffer to the socket in as few gathering writes as possible, blocking until they have all been written
+	 *
+	 * @param buffers
+	 * @throws IOException
+	 */
+	void write(ByteBuffer[] buffers) throws IOException {
+		long remaining = 0;
+		for(ByteBuffer buffer : buffers)
+			remaining += buffer.remaining();
+		while(remaining > 0) {
+			long count = this.channel.write(buffers);
+			remaining -= count;
+			if(remaining > 0 && count == 0)
+				this.await(SelectionKey.OP_WRITE);
+		}
+		this.lastActive = System.currentTimeMillis();
+	}
+	
+	/**
+	 * Waits on a temporary selector until the socket is ready, the event loop's own key stays untouched
+	 *
+	 * @param ops
+	 * @throws IOException
+	 */
+	private void await(int ops) throws IOException {
+		Selector selector = this.transport.acquireSelector();
+		try {
+			SelectionKey key = this.channel.register(selector, ops);
+			try {
+				if(selector.select(this.transport.settings.getTimeout()) == 0)
+					throw new SocketTimeoutException("Timed out waiting on " + this.remote + ".");
+			} finally {
+				key.cancel();
+				selector.selectNow();
+			}
+		} finally {
+			this.transport.releaseSelector(selector);
+		}
+	}
+	
+	/**
+	 * Answers a request the executor had no room for with 503 and closes the connection
+	 * The response is written with a single non-blocking write, as this may run on the event loop.
+	 */
+	private void reject() {
+		try {
+			this.channel.write(ByteBuffer.wrap(SERVICE_UNAVAILABLE));
+		} catch(IOException ignored) {}
+		this.closeIdle();
+	}
+	
+	/**
+	 * Closes the connection from the thread that owns it, returning its read buffer to the pool even if unread bytes are left in it
+	 */
+	void closeIdle() {
+		this.close();
+		if(this.in != null) {
+			this.transport.buffers.release(this.in);
+			this.in = null;
+		}
+	}
+	
+	/**
+	 * Closes the connection, may be called from any thread
+	 */
+	void close() {
+		this.closed = true;
+		this.key.cancel();
+		try {
+			this.channel.close();
+		} catch(IOException e) {}
+	}
+	
+	boolean isClosed() { return this.closed; }
+	
+	private void releaseBuffer() {
+		if(this.in != null && !this.in.hasRemaining()) {
+			this.transport.buffers.release(this.in);
+			this.in = null;
+		}
+	}
+	
+	private Runnable task(final RequestHead head) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				NioConnection.this.process(head);
+			}
+		};
+	}
+}
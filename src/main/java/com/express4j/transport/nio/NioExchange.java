@@ -0,0 +1,457 @@
+package com.express4j.transport.nio;
+
+import com.express4j.transport.Exchange;
+import com.express4j.utils.BufferPool;
+import com.express4j.utils.DateUtils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A request received by the NIO transport and the response written back on the same connection.
+ * Request bodies are read straight from the connection's buffer, response headers are held back and written together with the first part of the body.
+ */
+class NioExchange implements Exchange {
+	private static final byte[] CRLF = { '\r', '\n' };
+	private static final byte[] LAST_CHUNK = { '0', '\r', '\n', '\r', '\n' };
+	private static final int MAX_DRAIN = 256 * 1024;
+	
+	private static volatile String date;
+	private static volatile long dateSecond;
+	
+	private NioConnection connection;
+	private RequestHead head;
+	private TreeMap<String, List<String>> responseHeaders = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+	private BodyInputStream requestBody;
+	private OutputStream responseBody;
+	private volatile int responseCode = -1;
+	private boolean keepAlive;
+	private boolean http11;
+	
+	private AtomicInteger references = new AtomicInteger(2);
+	private AtomicBoolean complete = new AtomicBoolean();
+	private volatile boolean reusable = true;
+	
+	NioExchange(NioConnection connection, RequestHead head) {
+		this.connection = connection;
+		this.head = head;
+		this.http11 = head.protocol.equals("HTTP/1.1");
+		this.keepAlive = this.http11 ? !head.hasToken("Connection", "close") : head.hasToken("Connection", "keep-alive");
+		
+		this.requestBody = new BodyInputStream(head.contentLength, head.chunked);
+	}
+	
+	@Override
+	public String getRequestMethod() { return this.head.method; }
+	@Override
+	public String getRequestURI() { return this.head.uri; }
+	@Override
+	public String getProtocol() { return this.head.protocol; }
+	@Override
+	public InetSocketAddress getRemoteAddress() { return this.connection.remote; }
+	@Override
+	public InetSocketAddress getLocalAddress() { return this.connection.local; }
+	@Override
+	public Map<String, List<String>> getRequestHeaders() { return Collections.unmodifiableMap(this.head.headers); }
+	@Override
+	public InputStream getRequestBody() { return this.requestBody; }
+	@Override
+	public Map<String, List<String>> getResponseHeaders() { return this.responseHeaders; }
+	@Override
+	public OutputStream getResponseBody() { return this.responseBody; }
+	@Override
+	public int getResponseCode() { return this.responseCode; }
+	
+	@Override
+	public void sendResponseHeaders(int status, long length) throws IOException {
+		if(this.responseCode != -1)
+			throw new IOException("Response headers have already been sent.");
+		this.responseCode = status;
+		boolean bodyless = status < 200 || status == 204 || status == 304;
+		boolean head = this.head.method.equals("HEAD");
+		boolean chunked = false;
+		
+		StringBuilder sb = new StringBuilder(256);
+		sb.append("HTTP/1.1 ").append(status).append(' ').append(reason(status)).append("\r\n");
+		if(!this.responseHeaders.containsKey("Date"))
+			sb.append("Date: ").append(date()).append("\r\n");
+		for(Map.Entry<String, List<String>> header : this.responseHeaders.entrySet()) {
+			String name = header.getKey();
+			if(name.equalsIgnoreCase("Content-Length") || name.equalsIgnoreCase("Transfer-Encoding") || name.equalsIgnoreCase("Connection"))
+				continue;
+			for(String value : header.getValue())
+				sb.append(name).append(": ").append(value).append("\r\n");
+		}
+		if(!bodyless) {
+			if(length > 0)
+				sb.append("Content-Length: ").append(length).append("\r\n");
+			else if(length < 0)
+				sb.append("Content-Length: 0\r\n");
+			else if(this.http11 && !head) {
+				sb.append("Transfer-Encoding: chunked\r\n");
+				chunked = true;
+			} else if(!head)
+				// HTTP/1.0 clients find the end of a body of unknown length by the connection closing
+				this.keepAlive = false;
+		}
+		if(!this.keepAlive)
+			sb.append("Connection: close\r\n");
+		else if(!this.http11)
+			sb.append("Connection: keep-alive\r\n");
+		sb.append("\r\n");
+		ByteBuffer headers = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.ISO_8859_1));
+		
+		if(bodyless || length < 0) {
+			this.responseBody = new BodyOutputStream(headers, 0, false, true);
+			this.responseBody.close();
+		} else
+			this.responseBody = new BodyOutputStream(headers, length > 0 ? length : -1, chunked, head);
+	}
+	
+	@Override
+	public void close() {
+		if(this.responseCode == -1) {
+			this.abort();
+			return;
+		}
+		try {
+			this.responseBody.close();
+		} catch(IOException e) {
+			this.abort();
+		}
+	}
+	
+	@Override
+	public void abort() {
+		this.reusable = false;
+		this.connection.close();
+		this.complete();
+	}
+	
+	/**
+	 * Drops one of the two references held by the handler and the response, returns <code>true</code> once both are gone
+	 *
+	 * @return
+	 */
+	boolean release() { return this.references.decrementAndGet() == 0; }
+	
+	/**
+	 * Returns <code>true</code> if the response completed cleanly and the connection can serve another request
+	 *
+	 * @return
+	 */
+	boolean isReusable() { return this.keepAlive && this.reusable && this.complete.get(); }
+	
+	/**
+	 * Skips what the handler left unread of the request body, returns <code>false</code> if too much is left to be worth reading
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	boolean drain() throws IOException { return this.requestBody.drain(MAX_DRAIN); }
+	
+	private void complete() {
+		if(this.complete.compareAndSet(false, true) && this.release())
+			this.connection.completed(this);
+	}
+	
+	static String reason(int status) {
+		switch(status) {
+			case 100: return "Continue";
+			case 101: return "Switching Protocols";
+			case 200: return "OK";
+			case 201: return "Created";
+			case 202: return "Accepted";
+			case 204: return "No Content";
+			case 206: return "Partial Content";
+			case 301: return "Moved Permanently";
+			case 302: return "Found";
+			case 303: return "See Other";
+			case 304: return "Not Modified";
+			case 307: return "Temporary Redirect";
+			case 308: return "Permanent Redirect";
+			case 400: return "Bad Request";
+			case 401: return "Unauthorized";
+			case 403: return "Forbidden";
+			case 404: return "Not Found";
+			case 405: return "Method Not Allowed";
+			case 408: return "Request Timeout";
+			case 409: return "Conflict";
+			case 410: return "Gone";
+			case 411: return "Length Required";
+			case 412: return "Precondition Failed";
+			case 413: return "Payload Too Large";
+			case 415: return "Unsupported Media Type";
+			case 416: return "Range Not Satisfiable";
+			case 429: return "Too Many Requests";
+			case 431: return "Request Header Fields Too Large";
+			case 500: return "Internal Server Error";
+			case 501: return "Not Implemented";
+			case 502: return "Bad Gateway";
+			case 503: return "Service Unavailable";
+			case 504: return "Gateway Timeout";
+			default: return "Unknown";
+		}
+	}
+	
+	private static String date() {
+		long second = System.currentTimeMillis() / 1000;
+		if(second != dateSecond) {
+			date = DateUtils.toGMTString(new Date(second * 1000));
+			dateSecond = second;
+		}
+		return date;
+	}
+	
+	/**
+	 * The request body, framed by Content-Length or chunked transfer coding
+	 */
+	private class BodyInputStream extends InputStream {
+		private long remaining;
+		private boolean chunked;
+		private boolean started = false;
+		private boolean eof = false;
+		
+		BodyInputStream(long length, boolean chunked) {
+			this.remaining = chunked ? 0 : length;
+			this.chunked = chunked;
+			this.eof = !chunked && length == 0;
+		}
+		
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return this.read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+		}
+		
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if(this.eof)
+				return -1;
+			if(len == 0)
+				return 0;
+			if(!this.started) {
+				this.started = true;
+				if(NioExchange.this.http11 && NioExchange.this.responseCode == -1 && NioExchange.this.head.hasToken("Expect", "100-continue"))
+					NioExchange.this.connection.write(new ByteBuffer[] { ByteBuffer.wrap("HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1)) });
+			}
+			if(this.remaining == 0) {
+				if(!this.chunked || !this.nextChunk()) {
+					this.eof = true;
+					return -1;
+				}
+			}
+			ByteBuffer in = this.fill();
+			int count = (int) Math.min(Math.min(len, this.remaining), in.remaining());
+			in.get(b, off, count);
+			this.remaining -= count;
+			if(!this.chunked && this.remaining == 0)
+				this.eof = true;
+			return count;
+		}
+		
+		@Override
+		public int available() {
+			return 0;
+		}
+		
+		/**
+		 * Skips the rest of the body, returns <code>false</code> if more than <code>max</code> bytes are left
+		 *
+		 * @param max
+		 * @return
+		 * @throws IOException
+		 */
+		boolean drain(long max) throws IOException {
+			if(this.eof)
+				return true;
+			if(!this.started && NioExchange.this.head.hasToken("Expect", "100-continue"))
+				// The client is still waiting for permission to send the body, it will not be sent
+				return false;
+			byte[] buffer = BufferPool.SHARED.acquire();
+			try {
+				long skipped = 0;
+				int count;
+				while(skipped <= max && (count = this.read(buffer, 0, buffer.length)) >= 0)
+					skipped += count;
+				return this.eof;
+			} finally {
+				BufferPool.SHARED.release(buffer);
+			}
+		}
+		
+		private ByteBuffer fill() throws IOException {
+			ByteBuffer in = NioExchange.this.connection.fill();
+			if(in == null)
+				throw new EOFException("Connection closed before the request body was read.");
+			return in;
+		}
+		
+		/**
+		 * Reads the next chunk header, returns <code>false</code> after the last chunk and its trailers
+		 *
+		 * @return
+		 * @throws IOException
+		 */
+		private boolean nextChunk() throws IOException {
+			String line = this.readLine();
+			if(line.isEmpty())
+				// The CRLF ending the previous chunk
+				line = this.readLine();
+			int extension = line.indexOf(';');
+			long size;
+			try {
+				size = Long.parseLong((extension >= 0 ? line.substring(0, extension) : line).trim(), 16);
+			} catch(NumberFormatException e) {
+				throw new IOException("Malformed chunk size: " + line);
+			}
+			if(size < 0)
+				throw new IOException("Malformed chunk size: " + line);
+			if(size == 0) {
+				while(!this.readLine().isEmpty());
+				return false;
+			}
+			this.remaining = size;
+			return true;
+		}
+		
+		private String readLine() throws IOException {
+			StringBuilder sb = new StringBuilder();
+			while(true) {
+				ByteBuffer in = this.fill();
+				while(in.hasRemaining()) {
+					char c = (char) (in.get() & 0xFF);
+					if(c == '\n') {
+						int length = sb.length();
+						return length > 0 && sb.charAt(length - 1) == '\r' ? sb.substring(0, length - 1) : sb.toString();
+					}
+					if(sb.length() >= 4096)
+						throw new IOException("Chunk header too long.");
+					sb.append(c);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * The response body, buffered in a pooled direct buffer and written together with the pending headers
+	 */
+	private class BodyOutputStream extends OutputStream {
+		private ByteBuffer headers;
+		private ByteBuffer out;
+		private long remaining;
+		private boolean chunked;
+		private boolean discard;
+		private boolean closed = false;
+		
+		BodyOutputStream(ByteBuffer headers, long length, boolean chunked, boolean discard) {
+			this.headers = headers;
+			this.remaining = length;
+			this.chunked = chunked;
+			this.discard = discard;
+		}
+		
+		@Override
+		public void write(int b) throws IOException {
+			this.write(new byte[] { (byte) b }, 0, 1);
+		}
+		
+		@Override
+		public synchronized void write(byte[] b, int off, int len) throws IOException {
+			if(len == 0)
+				return;
+			if(this.closed)
+				throw new IOException("Response body is closed.");
+			if(this.remaining >= 0 && len > this.remaining)
+				throw new IOException("Response body is longer than its Content-Length.");
+			if(this.remaining >= 0)
+				this.remaining -= len;
+			if(this.discard)
+				return;
+			if(this.out == null)
+				this.out = NioExchange.this.connection.transport.buffers.acquire();
+			if(this.out.remaining() >= len)
+				this.out.put(b, off, len);
+			else
+				this.send(ByteBuffer.wrap(b, off, len), false);
+		}
+		
+		@Override
+		public synchronized void flush() throws IOException {
+			if(!this.closed)
+				this.send(null, false);
+		}
+		
+		@Override
+		public synchronized void close() throws IOException {
+			if(this.closed)
+				return;
+			this.closed = true;
+			try {
+				this.send(null, true);
+				if(this.remaining > 0 && !this.discard)
+					// The client is still waiting for the rest of the body
+					NioExchange.this.abort();
+			} finally {
+				if(this.out != null)
+					NioExchange.this.connection.transport.buffers.release(this.out);
+				this.out = null;
+				NioExchange.this.complete();
+			}
+		}
+		
+		/**
+		 * Writes the pending headers, the buffered body and the provided buffer with a single gathering write
+		 *
+		 * @param extra
+		 * @param last
+		 * @throws IOException
+		 */
+		private void send(ByteBuffer extra, boolean last) throws IOException {
+			List<ByteBuffer> buffers = new ArrayList<ByteBuffer>(6);
+			if(this.headers != null)
+				buffers.add(this.headers);
+			int size = 0;
+			int prefix = buffers.size();
+			if(this.out != null && this.out.position() > 0) {
+				this.out.flip();
+				buffers.add(this.out);
+				size += this.out.remaining();
+			}
+			if(extra != null) {
+				buffers.add(extra);
+				size += extra.remaining();
+			}
+			if(this.chunked && size > 0) {
+				buffers.add(prefix, ByteBuffer.wrap((Integer.toHexString(size) + "\r\n").getBytes(StandardCharsets.ISO_8859_1)));
+				buffers.add(ByteBuffer.wrap(CRLF));
+			}
+			if(this.chunked && last && !this.discard)
+				buffers.add(ByteBuffer.wrap(LAST_CHUNK));
+			try {
+				if(!buffers.isEmpty())
+					NioExchange.this.connection.write(buffers.toArray(new ByteBuffer[buffers.size()]));
+			} catch(IOException e) {
+				NioExchange.this.abort();
+				throw e;
+			} finally {
+				this.headers = null;
+				if(this.out != null)
+					this.out.clear();
+			}
+		}
+	}
+}
@@ -0,0 +1,196 @@
+package com.express4j.transport.nio;
+
+import com.express4j.service.obj.ServerSettings;
+import com.express4j.transport.ExchangeHandler;
+import com.express4j.transport.Transport;
+import com.express4j.utils.ByteBufferPool;
+import com.express4j.utils.ThreadUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A selector based HTTP/1.1 server.
+ * An acceptor thread hands connections to a fixed set of event loops which read requests into pooled direct buffers.
+ * With <code>ServerSettings.reusePort</code> every event loop instead accepts on its own SO_REUSEPORT socket bound to the same port, where the platform supports it.
+ * Parsed requests are handled on the executor, connections are kept alive and pipelined requests are answered in order.
+ */
+public class NioTransport implements Transport {
+	ServerSettings settings;
+	ExchangeHandler handler;
+	ByteBufferPool buffers;
+	int maxHeaderSize;
+	
+	private ExecutorService executor;
+	private ServerSocketChannel[] servers;
+	private EventLoop[] loops;
+	private Thread acceptor;
+	private ConcurrentLinkedQueue<Selector> selectors = new ConcurrentLinkedQueue<Selector>();
+	private volatile boolean running;
+	
+	@Override
+	public void start(InetSocketAddress address, ServerSettings settings, ExchangeHandler handler, ExecutorService executor) throws IOException {
+		this.settings = settings;
+		this.handler = handler;
+		this.executor = executor;
+		this.buffers = new ByteBufferPool(settings.getBufferSize(), 1024, true);
+		// A head has to fit in a connection's read buffer to be parsed at all
+		this.maxHeaderSize = Math.min(settings.getMaxHeaderSize(), settings.getBufferSize());
+		
+		ThreadFactory factory = ThreadUtils.namedFactory("Express4J-nio", false);
+		this.loops = new EventLoop[Math.max(1, settings.getEventLoops())];
+		for(int i = 0; i < this.loops.length; i++)
+			this.loops[i] = new EventLoop(this);
+		this.running = true;
+		
+		SocketOption<Boolean> reusePort = settings.isReusePort() ? reusePortOption() : null;
+		ServerSocketChannel first = this.bind(address, settings.getBacklog(), reusePort);
+		if(reusePort != null && first.supportedOptions().contains(reusePort)) {
+			// Every loop accepts on its own socket, the kernel spreads new connections across them
+			// The other sockets join the port the first one got, which differs from the requested one when it is 0
+			InetSocketAddress bound = (InetSocketAddress) first.getLocalAddress();
+			this.servers = new ServerSocketChannel[this.loops.length];
+			this.servers[0] = first;
+			try {
+				for(int i = 1; i < this.loops.length; i++)
+					this.servers[i] = this.bind(bound, settings.getBacklog(), reusePort);
+			} catch(IOException e) {
+				for(ServerSocketChannel server : this.servers)
+					if(server != null)
+						try {
+							server.close();
+						} catch(IOException ignored) {}
+				throw e;
+			}
+			for(int i = 0; i < this.loops.length; i++)
+				this.loops[i].listen(this.servers[i]);
+		} else {
+			this.servers = new ServerSocketChannel[] { first };
+			this.acceptor = ThreadUtils.namedFactory("Express4J-acceptor", false).newThread(new Runnable() {
+				@Override
+				public void run() {
+					NioTransport.this.accept();
+				}
+			});
+		}
+		
+		for(EventLoop loop : this.loops)
+			factory.newThread(loop).start();
+		if(this.acceptor != null)
+			this.acceptor.start();
+	}
+	
+	/**
+	 * Returns <code>true</code> if every event loop accepts on its own SO_REUSEPORT socket, <code>false</code> if a single acceptor hands connections out.
+	 *
+	 * @return
+	 */
+	public boolean isReusingPort() { return this.servers != null && this.servers.length > 1; }
+	
+	@Override
+	public void stop() {
+		this.running = false;
+		if(this.servers != null)
+			for(ServerSocketChannel server : this.servers)
+				try {
+					server.close();
+				} catch(IOException e) {}
+		if(this.loops != null)
+			for(EventLoop loop : this.loops)
+				loop.stop();
+		Selector selector;
+		while((selector = this.selectors.poll()) != null)
+			try {
+				selector.close();
+			} catch(IOException e) {}
+	}
+	
+	/**
+	 * Runs a task on the executor, or on the calling thread when there is none
+	 *
+	 * @param task
+	 * @return
+	 */
+	boolean dispatch(Runnable task) {
+		if(this.executor == null) {
+			task.run();
+			return true;
+		}
+		try {
+			this.executor.execute(task);
+			return true;
+		} catch(RejectedExecutionException e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * Takes a temporary selector used by worker threads to wait on a connection without blocking its event loop
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	Selector acquireSelector() throws IOException {
+		Selector selector = this.selectors.poll();
+		return selector != null ? selector : Selector.open();
+	}
+	
+	void releaseSelector(Selector selector) {
+		if(this.running)
+			this.selectors.offer(selector);
+		else
+			try {
+				selector.close();
+			} catch(IOException e) {}
+	}
+	
+	private void accept() {
+		ServerSocketChannel server = this.servers[0];
+		int next = 0;
+		while(this.running) {
+			try {
+				SocketChannel channel = server.accept();
+				this.loops[next].register(channel);
+				next = (next + 1) % this.loops.length;
+			} catch(ClosedChannelException e) {
+				return;
+			} catch(IOException e) {
+				if(this.running)
+					this.handler.error("Could not accept a connection", e);
+			}
+		}
+	}
+	
+	private ServerSocketChannel bind(InetSocketAddress address, int backlog, SocketOption<Boolean> reusePort) throws IOException {
+		ServerSocketChannel server = ServerSocketChannel.open();
+		server.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+		if(reusePort != null && server.supportedOptions().contains(reusePort))
+			server.setOption(reusePort, true);
+		server.bind(address, backlog);
+		return server;
+	}
+	
+	/**
+	 * Returns the SO_REUSEPORT socket option, or <code>null</code> on runtimes older than Java 9 which do not expose it
+	 *
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	private static SocketOption<Boolean> reusePortOption() {
+		try {
+			return (SocketOption<Boolean>) StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+		} catch(ReflectiveOperationException e) {
+			return null;
+		}
+	}
+}
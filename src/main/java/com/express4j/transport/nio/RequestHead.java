@@ -0,0 +1,177 @@
+package com.express4j.transport.nio;
+
+import com.express4j.service.obj.Method;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * The request line and headers of an HTTP/1.x request, parsed straight out of a connection's read buffer.
+ */
+class RequestHead {
+	final String method;
+	final String uri;
+	final String protocol;
+	final TreeMap<String, List<String>> headers;
+	final long contentLength;
+	final boolean chunked;
+	
+	private RequestHead(String method, String uri, String protocol, TreeMap<String, List<String>> headers) throws HttpException {
+		this.method = method;
+		this.uri = uri;
+		this.protocol = protocol;
+		this.headers = headers;
+		this.chunked = this.isChunked();
+		this.contentLength = this.chunked ? 0 : this.parseContentLength();
+	}
+	
+	/**
+	 * Returns the first value of a header, or <code>null</code>
+	 *
+	 * @param name
+	 * @return
+	 */
+	String first(String name) {
+		List<String> values = this.headers.get(name);
+		return values != null && !values.isEmpty() ? values.get(0) : null;
+	}
+	
+	/**
+	 * Returns <code>true</code> if a comma separated header contains the provided token, ignoring case
+	 *
+	 * @param name
+	 * @param token
+	 * @return
+	 */
+	boolean hasToken(String name, String token) {
+		List<String> values = this.headers.get(name);
+		if(values != null)
+			for(String value : values)
+				for(String part : value.split(","))
+					if(part.trim().equalsIgnoreCase(token))
+						return true;
+		return false;
+	}
+	
+	/**
+	 * Returns <code>true</code> if the body is sent with chunked encoding
+	 * Requests framed by both Transfer-Encoding and Content-Length, or by a Transfer-Encoding that does not end with chunked, are rejected.
+	 * Any leeway there lets a request be read differently here and by a proxy in front, which is how requests are smuggled (RFC 7230 section 3.3.3).
+	 *
+	 * @return
+	 * @throws HttpException
+	 */
+	private boolean isChunked() throws HttpException {
+		List<String> values = this.headers.get("Transfer-Encoding");
+		if(values == null)
+			return false;
+		if(this.headers.containsKey("Content-Length"))
+			throw new HttpException(400, "Request has both a Transfer-Encoding and a Content-Length.");
+		String last = null;
+		for(String value : values)
+			for(String coding : value.split(","))
+				if(!coding.trim().isEmpty())
+					last = coding.trim();
+		if(last == null || !last.equalsIgnoreCase("chunked"))
+			throw new HttpException(400, "Request body is not chunked last.");
+		return true;
+	}
+	
+	/**
+	 * Returns the length of the body from the Content-Length header, 0 if there is none
+	 * Repeated values are only accepted if they all agree.
+	 *
+	 * @return
+	 * @throws HttpException
+	 */
+	private long parseContentLength() throws HttpException {
+		List<String> values = this.headers.get("Content-Length");
+		if(values == null)
+			return 0;
+		long length = -1;
+		for(String value : values)
+			for(String part : value.split(",", -1)) {
+				long parsed;
+				try {
+					parsed = Long.parseLong(part.trim());
+				} catch(NumberFormatException e) {
+					throw new HttpException(400, "Malformed Content-Length.");
+				}
+				if(parsed < 0 || (length >= 0 && parsed != length))
+					throw new HttpException(400, "Malformed Content-Length.");
+				length = parsed;
+			}
+		return length;
+	}
+	
+	/**
+	 * Parses a request head from the readable bytes of the buffer, consuming it
+	 * Returns <code>null</code> and leaves the buffer untouched if the head is not complete yet.
+	 * A head that fills the whole buffer without ending is rejected, as no more bytes could ever be read into it.
+	 *
+	 * @param buffer
+	 * @param maxSize
+	 * @return
+	 * @throws HttpException
+	 */
+	static RequestHead parse(ByteBuffer buffer, int maxSize) throws HttpException {
+		// Empty lines between pipelined requests are allowed before a request line
+		while(buffer.hasRemaining() && (buffer.get(buffer.position()) == '\r' || buffer.get(buffer.position()) == '\n'))
+			buffer.position(buffer.position() + 1);
+		int start = buffer.position();
+		int end = -1;
+		for(int i = start; i < buffer.limit(); i++) {
+			if(buffer.get(i) != '\n')
+				continue;
+			if(i + 1 < buffer.limit() && buffer.get(i + 1) == '\n') {
+				end = i + 2;
+				break;
+			}
+			if(i + 2 < buffer.limit() && buffer.get(i + 1) == '\r' && buffer.get(i + 2) == '\n') {
+				end = i + 3;
+				break;
+			}
+		}
+		if(end < 0) {
+			if(buffer.remaining() >= maxSize || buffer.remaining() == buffer.capacity())
+				throw new HttpException(431, "Request header fields too large.");
+			return null;
+		}
+		if(end - start > maxSize)
+			throw new HttpException(431, "Request header fields too large.");
+		
+		byte[] bytes = new byte[end - start];
+		buffer.get(bytes);
+		String[] lines = new String(bytes, StandardCharsets.ISO_8859_1).split("\r?\n");
+		
+		String[] line = lines[0].split(" ", -1);
+		if(line.length != 3 || line[0].isEmpty() || line[1].isEmpty() || !line[2].startsWith("HTTP/1."))
+			throw new HttpException(400, "Malformed request line.");
+		for(int i = 0; i < line[0].length(); i++)
+			if((line[0].charAt(i) < 'A' || line[0].charAt(i) > 'Z') && line[0].charAt(i) != '-')
+				throw new HttpException(400, "Malformed request method.");
+		if(Method.fromString(line[0]) == null)
+			throw new HttpException(501, "Request method is not supported.");
+		
+		TreeMap<String, List<String>> headers = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+		for(int i = 1; i < lines.length; i++) {
+			String header = lines[i];
+			if(header.isEmpty())
+				continue;
+			int colon = header.indexOf(':');
+			if(colon <= 0 || header.charAt(0) == ' ' || header.charAt(0) == '\t' || header.charAt(colon - 1) == ' ')
+				throw new HttpException(400, "Malformed header field.");
+			String name = header.substring(0, colon);
+			List<String> values = headers.get(name);
+			if(values == null) {
+				values = new ArrayList<String>(1);
+				headers.put(name, values);
+			}
+			values.add(header.substring(colon + 1).trim());
+		}
+		return new RequestHead(line[0], line[1], line[2], headers);
+	}
+}
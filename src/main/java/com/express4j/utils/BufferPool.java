@@ -0,0 +1,46 @@
+package com.express4j.utils;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A bounded pool of fixed size byte arrays, shared by every thread.
+ * Arrays are handed out when available and allocated otherwise; returning an array to a full pool drops it.
+ */
+public class BufferPool {
+	public static final BufferPool SHARED = new BufferPool(8192, 256);
+	
+	private int size;
+	private ArrayBlockingQueue<byte[]> buffers;
+	
+	public BufferPool(int size, int capacity) {
+		this.size = size;
+		this.buffers = new ArrayBlockingQueue<byte[]>(capacity);
+	}
+	
+	/**
+	 * Returns the size of the arrays in this pool
+	 *
+	 * @return
+	 */
+	public int size() { return this.size; }
+	
+	/**
+	 * Takes an array from the pool, allocating a new one if the pool is empty
+	 *
+	 * @return
+	 */
+	public byte[] acquire() {
+		byte[] buffer = this.buffers.poll();
+		return buffer != null ? buffer : new byte[this.size];
+	}
+	
+	/**
+	 * Returns an array to the pool
+	 *
+	 * @param buffer
+	 */
+	public void release(byte[] buffer) {
+		if(buffer != null && buffer.length == this.size)
+			this.buffers.offer(buffer);
+	}
+}
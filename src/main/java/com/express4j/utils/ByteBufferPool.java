@@ -0,0 +1,50 @@
+package com.express4j.utils;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A bounded pool of fixed size ByteBuffers, shared by every thread.
+ * Direct buffers are expensive to allocate and free, pooling them lets the network code read and write without copying through the Java heap.
+ */
+public class ByteBufferPool {
+	private int size;
+	private boolean direct;
+	private ArrayBlockingQueue<ByteBuffer> buffers;
+	
+	public ByteBufferPool(int size, int capacity, boolean direct) {
+		this.size = size;
+		this.direct = direct;
+		this.buffers = new ArrayBlockingQueue<ByteBuffer>(capacity);
+	}
+	
+	/**
+	 * Returns the capacity of the buffers in this pool
+	 *
+	 * @return
+	 */
+	public int size() { return this.size; }
+	
+	/**
+	 * Takes a cleared buffer from the pool, allocating a new one if the pool is empty
+	 *
+	 * @return
+	 */
+	public ByteBuffer acquire() {
+		ByteBuffer buffer = this.buffers.poll();
+		if(buffer == null)
+			return this.direct ? ByteBuffer.allocateDirect(this.size) : ByteBuffer.allocate(this.size);
+		buffer.clear();
+		return buffer;
+	}
+	
+	/**
+	 * Returns a buffer to the pool
+	 *
+	 * @param buffer
+	 */
+	public void release(ByteBuffer buffer) {
+		if(buffer != null && buffer.capacity() == this.size && buffer.isDirect() == this.direct)
+			this.buffers.offer(buffer);
+	}
+}
@@ -0,0 +1,58 @@
+package com.express4j.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class CompressionUtils {
+	public static final String GZIP = "gzip";
+	public static final String DEFLATE = "deflate";
+	
+	/**
+	 * Compresses a byte array with the provided encoding
+	 *
+	 * @param data
+	 * @param offset
+	 * @param length
+	 * @param encoding
+	 * @param level
+	 * @return
+	 * @throws IOException
+	 */
+	public static byte[] compress(byte[] data, int offset, int length, String encoding, int level) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(64, length / 3));
+		OutputStream os = wrap(bytes, encoding, level);
+		os.write(data, offset, length);
+		os.close();
+		return bytes.toByteArray();
+	}
+	
+	/**
+	 * Wraps an OutputStream so everything written to it is compressed with the provided encoding
+	 * Flushing the returned stream flushes the compressor too, so the client can decode everything written so far.
+	 *
+	 * @param os
+	 * @param encoding
+	 * @param level
+	 * @return
+	 * @throws IOException
+	 */
+	public static OutputStream wrap(OutputStream os, String encoding, final int level) throws IOException {
+		if(GZIP.equals(encoding))
+			return new GZIPOutputStream(os, 8192, true) {
+				{ this.def.setLevel(level); }
+			};
+		if(DEFLATE.equals(encoding))
+			return new DeflaterOutputStream(os, new Deflater(level), 8192, true) {
+				@Override
+				public void close() throws IOException {
+					super.close();
+					this.def.end();
+				}
+			};
+		throw new IllegalArgumentException("Unsupported encoding: " + encoding);
+	}
+}
@@ -1,14 +1,34 @@
 package com.express4j.utils;
 
 import java.text.DateFormat;
+import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Locale;
 import java.util.TimeZone;
 
 public class DateUtils {
 	public static String toGMTString(Date date) {
-		DateFormat dateFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss z");
+		return formatter().format(date);
+	}
+	
+	/**
+	 * Parses a date in the format used by HTTP headers, returns <code>null</code> if it is invalid
+	 *
+	 * @param date
+	 * @return
+	 */
+	public static Date fromGMTString(String date) {
+		try {
+			return formatter().parse(date);
+		} catch(ParseException e) {
+			return null;
+		}
+	}
+	
+	private static DateFormat formatter() {
+		DateFormat dateFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss z", Locale.US);
 		dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
-		return dateFormat.format(date);
+		return dateFormat;
 	}
 }
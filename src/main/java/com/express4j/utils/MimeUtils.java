@@ -0,0 +1,51 @@
+package com.express4j.utils;
+
+import java.net.URLConnection;
+import java.util.HashMap;
+
+public class MimeUtils {
+	private static final HashMap<String, String> TYPES = new HashMap<String, String>();
+	
+	static {
+		TYPES.put("html", "text/html");
+		TYPES.put("htm", "text/html");
+		TYPES.put("css", "text/css");
+		TYPES.put("js", "application/javascript");
+		TYPES.put("mjs", "application/javascript");
+		TYPES.put("json", "application/json");
+		TYPES.put("map", "application/json");
+		TYPES.put("txt", "text/plain");
+		TYPES.put("csv", "text/csv");
+		TYPES.put("xml", "application/xml");
+		TYPES.put("svg", "image/svg+xml");
+		TYPES.put("png", "image/png");
+		TYPES.put("jpg", "image/jpeg");
+		TYPES.put("jpeg", "image/jpeg");
+		TYPES.put("gif", "image/gif");
+		TYPES.put("webp", "image/webp");
+		TYPES.put("ico", "image/x-icon");
+		TYPES.put("woff", "font/woff");
+		TYPES.put("woff2", "font/woff2");
+		TYPES.put("mp4", "video/mp4");
+		TYPES.put("webm", "video/webm");
+		TYPES.put("mp3", "audio/mpeg");
+		TYPES.put("pdf", "application/pdf");
+		TYPES.put("zip", "application/zip");
+		TYPES.put("gz", "application/gzip");
+		TYPES.put("wasm", "application/wasm");
+	}
+	
+	/**
+	 * Returns the MIME type for a file name based on its extension, <code>application/octet-stream</code> if it is unknown
+	 *
+	 * @param name
+	 * @return
+	 */
+	public static String getType(String name) {
+		int dot = name.lastIndexOf('.');
+		String type = dot < 0 ? null : TYPES.get(name.substring(dot + 1).toLowerCase());
+		if(type == null)
+			type = URLConnection.getFileNameMap().getContentTypeFor(name);
+		return type != null ? type : "application/octet-stream";
+	}
+}
@@ -0,0 +1,74 @@
+package com.express4j.utils;
+
+import com.express4j.service.obj.ExecutorType;
+import com.express4j.service.obj.ServerSettings;
+import com.express4j.service.obj.TransportType;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ThreadUtils {
+	/**
+	 * Creates the executor described by the provided settings, or <code>null</code> for <code>ExecutorType.DISPATCHER</code>
+	 *
+	 * @param settings
+	 * @return
+	 */
+	public static ExecutorService createExecutor(ServerSettings settings) {
+		ExecutorType type = settings.getExecutor();
+		if(type == null)
+			type = ExecutorType.getDefault();
+		switch(type) {
+			case DISPATCHER:
+				return null;
+			case WORK_STEALING:
+				return Executors.newWorkStealingPool(settings.getThreads());
+			case VIRTUAL:
+				try {
+					return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+				} catch(ReflectiveOperationException e) {
+					throw new UnsupportedOperationException("Virtual threads require Java 21 or newer.", e);
+				}
+			default:
+				// An NIO event loop must never run a handler itself, it rejects the request instead
+				RejectedExecutionHandler rejection = settings.getTransport() == TransportType.NIO ? new ThreadPoolExecutor.AbortPolicy() : new ThreadPoolExecutor.CallerRunsPolicy();
+				ThreadPoolExecutor executor = new ThreadPoolExecutor(settings.getThreads(), settings.getThreads(), 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(settings.getQueueSize()), namedFactory("Express4J-worker"), rejection);
+				executor.allowCoreThreadTimeOut(true);
+				return executor;
+		}
+	}
+	
+	/**
+	 * Creates a ThreadFactory producing daemon threads named <code>prefix-N</code>
+	 *
+	 * @param prefix
+	 * @return
+	 */
+	public static ThreadFactory namedFactory(String prefix) { return namedFactory(prefix, true); }
+	
+	/**
+	 * Creates a ThreadFactory producing threads named <code>prefix-N</code>
+	 * Non-daemon threads keep the JVM running, use them for threads that serve the application.
+	 *
+	 * @param prefix
+	 * @param daemon
+	 * @return
+	 */
+	public static ThreadFactory namedFactory(final String prefix, final boolean daemon) {
+		final AtomicInteger count = new AtomicInteger();
+		return new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+				thread.setDaemon(daemon);
+				return thread;
+			}
+		};
+	}
+}
@@ -0,0 +1,125 @@
+package com.express4j.utils;
+
+import com.express4j.service.obj.Cookie;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class URLUtils {
+	/**
+	 * Parses a query string or urlencoded form body into the provided map, keeping every value of repeated keys in order
+	 * Keys without <code>=</code> are given an empty value.
+	 *
+	 * @param query
+	 * @param map
+	 * @return
+	 */
+	public static <M extends Map<String, List<String>>> M parseQuery(String query, M map) {
+		int start = 0;
+		int length = query.length();
+		while(start < length) {
+			int end = query.indexOf('&', start);
+			if(end < 0)
+				end = length;
+			if(end > start) {
+				int equals = query.indexOf('=', start);
+				String key;
+				String value;
+				if(equals < 0 || equals > end) {
+					key = decode(query.substring(start, end), true);
+					value = "";
+				} else {
+					key = decode(query.substring(start, equals), true);
+					value = decode(query.substring(equals + 1, end), true);
+				}
+				List<String> values = map.get(key);
+				if(values == null) {
+					values = new ArrayList<String>(1);
+					map.put(key, values);
+				}
+				values.add(value);
+			}
+			start = end + 1;
+		}
+		return map;
+	}
+	
+	/**
+	 * Parses the value of a Cookie header into the provided map
+	 * Values are split at the first <code>=</code> only, surrounding quotes are removed and percent-encoding is decoded.
+	 *
+	 * @param header
+	 * @param map
+	 * @return
+	 */
+	public static <M extends Map<String, Cookie>> M parseCookies(String header, M map) {
+		int start = 0;
+		int length = header.length();
+		while(start < length) {
+			int end = header.indexOf(';', start);
+			if(end < 0)
+				end = length;
+			int equals = header.indexOf('=', start);
+			if(equals > start && equals < end) {
+				String name = header.substring(start, equals).trim();
+				String value = header.substring(equals + 1, end).trim();
+				if(value.length() > 1 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"')
+					value = value.substring(1, value.length() - 1);
+				if(!name.isEmpty() && !map.containsKey(name))
+					map.put(name, new Cookie(name, decode(value, false)));
+			}
+			start = end + 1;
+		}
+		return map;
+	}
+	
+	/**
+	 * Decodes percent-encoded UTF-8 text, returns the input itself when there is nothing to decode
+	 * Malformed escapes are kept as they are.
+	 *
+	 * @param s
+	 * @param plusAsSpace Whether <code>+</code> is decoded to a space, as in query strings and form bodies
+	 * @return
+	 */
+	public static String decode(String s, boolean plusAsSpace) {
+		int i = 0;
+		for(; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if(c == '%' || (plusAsSpace && c == '+'))
+				break;
+		}
+		if(i == s.length())
+			return s;
+		
+		StringBuilder sb = new StringBuilder(s.length());
+		sb.append(s, 0, i);
+		ByteArrayOutputStream bytes = null;
+		while(i < s.length()) {
+			char c = s.charAt(i);
+			if(c == '%' && i + 2 < s.length() && hex(s.charAt(i + 1)) >= 0 && hex(s.charAt(i + 2)) >= 0) {
+				if(bytes == null)
+					bytes = new ByteArrayOutputStream();
+				bytes.reset();
+				while(i + 2 < s.length() && s.charAt(i) == '%' && hex(s.charAt(i + 1)) >= 0 && hex(s.charAt(i + 2)) >= 0) {
+					bytes.write((hex(s.charAt(i + 1)) << 4) | hex(s.charAt(i + 2)));
+					i += 3;
+				}
+				sb.append(new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+				continue;
+			}
+			sb.append(plusAsSpace && c == '+' ? ' ' : c);
+			i++;
+		}
+		return sb.toString();
+	}
+	
+	private static int hex(char c) {
+		if(c >= '0' && c <= '9') return c - '0';
+		if(c >= 'a' && c <= 'f') return c - 'a' + 10;
+		if(c >= 'A' && c <= 'F') return c - 'A' + 10;
+		return -1;
+	}
+}
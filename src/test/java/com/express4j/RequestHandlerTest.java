@@ -0,0 +1,42 @@
+package com.express4j;
+
+import com.express4j.events.Request;
+import com.express4j.routing.Route;
+import com.express4j.service.HttpRequest;
+import com.express4j.service.HttpResponse;
+import com.express4j.transport.memory.MemoryRequest;
+import com.express4j.transport.memory.MemoryResponse;
+import com.express4j.transport.memory.MemoryTransport;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class RequestHandlerTest {
+	private MemoryTransport transport;
+	
+	@Before
+	public void setUp() throws Exception {
+		Express4J app = new Express4J(".");
+		app.setLog(null);
+		app.use(Route.wrap(new Request() {
+			@Override
+			public void handle(HttpRequest req, HttpResponse res) throws Exception {
+				res.send(req.getMethod().toString());
+			}
+		}));
+		this.transport = new MemoryTransport(new RequestHandler(app));
+	}
+	
+	@Test
+	public void handlesKnownMethods() throws Exception {
+		MemoryResponse response = this.transport.send(new MemoryRequest("M-SEARCH", "/"));
+		assertEquals(200, response.getStatus());
+	}
+	
+	@Test
+	public void answersUnknownMethodsWithNotImplemented() throws Exception {
+		assertEquals(501, this.transport.send(new MemoryRequest("FOO", "/")).getStatus());
+		assertEquals(501, this.transport.send(new MemoryRequest("ALL", "/")).getStatus());
+	}
+}
@@ -0,0 +1,82 @@
+package com.express4j.cache;
+
+import com.express4j.Express4J;
+import com.express4j.RequestHandler;
+import com.express4j.events.AsyncRequest;
+import com.express4j.events.Request;
+import com.express4j.routing.Route;
+import com.express4j.service.HttpRequest;
+import com.express4j.service.HttpResponse;
+import com.express4j.transport.memory.MemoryRequest;
+import com.express4j.transport.memory.MemoryTransport;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class ResponseCacheTest {
+	private Express4J app;
+	private ResponseCache cache;
+	private MemoryTransport transport;
+	private AtomicInteger calls;
+	
+	@Before
+	public void setUp() throws Exception {
+		this.app = new Express4J(".");
+		this.app.setLog(null);
+		this.cache = new ResponseCache();
+		this.transport = new MemoryTransport(new RequestHandler(this.app));
+		this.calls = new AtomicInteger();
+	}
+	
+	@Test
+	public void servesRepeatedRequestsFromTheCache() throws Exception {
+		this.app.get("/items", this.cache.route(60000), Route.wrap(new Request() {
+			@Override
+			public void handle(HttpRequest req, HttpResponse res) throws Exception {
+				res.send("call " + ResponseCacheTest.this.calls.incrementAndGet());
+			}
+		}));
+		assertEquals("call 1", this.transport.send(MemoryRequest.get("/items")).getBodyAsString());
+		assertEquals("call 1", this.transport.send(MemoryRequest.get("/items")).getBodyAsString());
+		assertEquals(1, this.calls.get());
+	}
+	
+	@Test
+	public void keysQueryValuesUnambiguously() throws Exception {
+		this.app.get("/search", this.cache.route(60000).query("a", "b"), Route.wrap(new Request() {
+			@Override
+			public void handle(HttpRequest req, HttpResponse res) throws Exception {
+				res.send(req.getQuery("a") + "|" + req.getQuery("b"));
+			}
+		}));
+		assertEquals("x&b=2|null", this.transport.send(MemoryRequest.get("/search?a=x%26b%3D2")).getBodyAsString());
+		assertEquals("x|2", this.transport.send(MemoryRequest.get("/search?a=x&b=2")).getBodyAsString());
+	}
+	
+	@Test
+	public void doesNotStoreBodiesCutShortByAnAsyncFailure() throws Exception {
+		this.app.get("/stream", this.cache.route(60000), Route.async(new AsyncRequest() {
+			@Override
+			public CompletionStage<?> handle(HttpRequest req, HttpResponse res) throws Exception {
+				ResponseCacheTest.this.calls.incrementAndGet();
+				// Larger than the response buffer, so the headers and a 200 are committed before the failure
+				OutputStream os = res.stream();
+				os.write(new byte[64 * 1024]);
+				os.flush();
+				CompletableFuture<Void> stage = new CompletableFuture<Void>();
+				stage.completeExceptionally(new IllegalStateException("Failed halfway through the body."));
+				return stage;
+			}
+		}));
+		this.transport.send(MemoryRequest.get("/stream"));
+		this.transport.send(MemoryRequest.get("/stream"));
+		assertEquals(2, this.calls.get());
+		assertEquals(0, this.cache.count());
+	}
+}
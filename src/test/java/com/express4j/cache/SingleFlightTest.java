@@ -0,0 +1,115 @@
+package com.express4j.cache;
+
+import com.express4j.Express4J;
+import com.express4j.RequestHandler;
+import com.express4j.events.AsyncRequest;
+import com.express4j.routing.Route;
+import com.express4j.service.HttpRequest;
+import com.express4j.service.HttpResponse;
+import com.express4j.transport.memory.MemoryRequest;
+import com.express4j.transport.memory.MemoryResponse;
+import com.express4j.transport.memory.MemoryTransport;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class SingleFlightTest {
+	private Express4J app;
+	private SingleFlight flight;
+	private MemoryTransport transport;
+	private AtomicInteger calls;
+	private CompletableFuture<Void> gate;
+	
+	@Before
+	public void setUp() throws Exception {
+		this.app = new Express4J(".");
+		this.app.setLog(null);
+		this.flight = new SingleFlight();
+		this.transport = new MemoryTransport(new RequestHandler(this.app));
+		this.calls = new AtomicInteger();
+		this.gate = new CompletableFuture<Void>();
+		// Every run of the route waits on the gate, so followers arrive while the first request is still running
+		this.app.get("/report", this.flight, Route.async(new AsyncRequest() {
+			@Override
+			public CompletionStage<?> handle(final HttpRequest req, final HttpResponse res) throws Exception {
+				SingleFlightTest.this.calls.incrementAndGet();
+				return SingleFlightTest.this.gate.thenRun(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							if(!req.get("Range").isEmpty())
+								res.status(206).send("partial");
+							else if(req.getQuery("status") != null)
+								res.status(Integer.parseInt(req.getQuery("status"))).send("status " + req.getQuery("status"));
+							else
+								res.send("full report");
+						} catch(IOException e) {
+							throw new CompletionException(e);
+						}
+					}
+				});
+			}
+		}));
+	}
+	
+	@Test
+	public void coalescesConcurrentRequests() throws Exception {
+		List<CompletableFuture<MemoryResponse>> responses = this.submit(MemoryRequest.get("/report"), 4);
+		this.gate.complete(null);
+		for(CompletableFuture<MemoryResponse> response : responses)
+			assertEquals("full report", response.get(5, TimeUnit.SECONDS).getBodyAsString());
+		assertEquals(1, this.calls.get());
+		assertEquals(3, this.flight.getCoalesced());
+	}
+	
+	@Test
+	public void doesNotShareARangeResponse() throws Exception {
+		CompletableFuture<MemoryResponse> partial = this.transport.submit(MemoryRequest.get("/report").header("Range", "bytes=0-3"));
+		List<CompletableFuture<MemoryResponse>> responses = this.submit(MemoryRequest.get("/report"), 2);
+		this.gate.complete(null);
+		assertEquals(206, partial.get(5, TimeUnit.SECONDS).getStatus());
+		for(CompletableFuture<MemoryResponse> response : responses) {
+			MemoryResponse full = response.get(5, TimeUnit.SECONDS);
+			assertEquals(200, full.getStatus());
+			assertEquals("full report", full.getBodyAsString());
+		}
+	}
+	
+	@Test
+	public void doesNotCoalesceConditionalRequests() throws Exception {
+		CompletableFuture<MemoryResponse> conditional = this.transport.submit(MemoryRequest.get("/report").header("If-None-Match", "\"v1\""));
+		CompletableFuture<MemoryResponse> plain = this.transport.submit(MemoryRequest.get("/report"));
+		this.gate.complete(null);
+		conditional.get(5, TimeUnit.SECONDS);
+		assertEquals("full report", plain.get(5, TimeUnit.SECONDS).getBodyAsString());
+		assertEquals(2, this.calls.get());
+		assertEquals(0, this.flight.getCoalesced());
+	}
+	
+	@Test
+	public void onlySharesOkResponses() throws Exception {
+		List<CompletableFuture<MemoryResponse>> responses = this.submit(MemoryRequest.get("/report?status=304"), 3);
+		this.gate.complete(null);
+		for(CompletableFuture<MemoryResponse> response : responses)
+			assertEquals(304, response.get(5, TimeUnit.SECONDS).getStatus());
+		assertEquals(3, this.calls.get());
+		assertEquals(0, this.flight.getCoalesced());
+	}
+	
+	private List<CompletableFuture<MemoryResponse>> submit(MemoryRequest request, int count) {
+		List<CompletableFuture<MemoryResponse>> responses = new ArrayList<CompletableFuture<MemoryResponse>>();
+		for(int i = 0; i < count; i++)
+			responses.add(this.transport.submit(request));
+		return responses;
+	}
+}
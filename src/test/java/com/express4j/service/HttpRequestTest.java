@@ -0,0 +1,50 @@
+package com.express4j.service;
+
+import com.express4j.Express4J;
+import com.express4j.RequestHandler;
+import com.express4j.events.Request;
+import com.express4j.routing.Route;
+import com.express4j.service.obj.ContentType;
+import com.express4j.transport.memory.MemoryRequest;
+import com.express4j.transport.memory.MemoryTransport;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class HttpRequestTest {
+	private MemoryTransport transport;
+	
+	@Before
+	public void setUp() throws Exception {
+		Express4J app = new Express4J(".");
+		app.setLog(null);
+		app.get("/accepts", Route.wrap(new Request() {
+			@Override
+			public void handle(HttpRequest req, HttpResponse res) throws Exception {
+				res.send(req.accepts(ContentType.HTML) + "|" + req.acceptsEncoding("gzip") + "|" + req.acceptsLanguage("EN"));
+			}
+		}));
+		this.transport = new MemoryTransport(new RequestHandler(app));
+	}
+	
+	@Test
+	public void readsTheWeightOfEachValue() throws Exception {
+		assertEquals("true|false|true", this.accepts("text/html;q=0.5, */*;q=0.1", "gzip;q=0, br", "en;q=0.8"));
+	}
+	
+	@Test
+	public void skipsParametersOtherThanTheWeight() throws Exception {
+		assertEquals("true|true|true", this.accepts("text/html;q=0.5;level=1", "gzip ; q=1", "en"));
+		assertEquals("true|false|true", this.accepts("text/html;level=1;q=0.5", "gzip;Q=0", "en;q=1"));
+	}
+	
+	@Test
+	public void doesNotMistakeOtherParametersForTheWeight() throws Exception {
+		assertEquals("true|true|true", this.accepts("text/html;seq=0", "gzip", "en"));
+	}
+	
+	private String accepts(String type, String encoding, String lang) throws Exception {
+		return this.transport.send(MemoryRequest.get("/accepts").header("Accept", type).header("Accept-Encoding", encoding).header("Accept-Language", lang)).getBodyAsString();
+	}
+}
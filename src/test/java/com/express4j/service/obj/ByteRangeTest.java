@@ -0,0 +1,43 @@
+package com.express4j.service.obj;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ByteRangeTest {
+	@Test
+	public void parsesSuffixAndOpenRanges() {
+		List<ByteRange> ranges = ByteRange.parse("bytes=-10", 100);
+		assertEquals(1, ranges.size());
+		assertEquals("bytes 90-99/100", ranges.get(0).toContentRange(100));
+		ranges = ByteRange.parse("bytes=40-", 100);
+		assertEquals("bytes 40-99/100", ranges.get(0).toContentRange(100));
+	}
+	
+	@Test
+	public void mergesDuplicateRanges() {
+		List<ByteRange> ranges = ByteRange.parse("bytes=0-,0-,0-,0-,0-,0-,0-,0-,0-,0-,0-,0-,0-,0-,0-,0-", 100);
+		assertEquals(1, ranges.size());
+		assertEquals(100, ranges.get(0).length());
+	}
+	
+	@Test
+	public void mergesOverlappingAndAdjacentRanges() {
+		List<ByteRange> ranges = ByteRange.parse("bytes=50-59,0-9,5-19,20-29,70-", 100);
+		assertEquals(3, ranges.size());
+		assertEquals("bytes 0-29/100", ranges.get(0).toContentRange(100));
+		assertEquals("bytes 50-59/100", ranges.get(1).toContentRange(100));
+		assertEquals("bytes 70-99/100", ranges.get(2).toContentRange(100));
+	}
+	
+	@Test
+	public void ignoresMalformedHeaders() {
+		assertNull(ByteRange.parse("items=0-9", 100));
+		assertNull(ByteRange.parse("bytes=9-0", 100));
+		assertNull(ByteRange.parse("bytes=a-b", 100));
+		assertEquals(0, ByteRange.parse("bytes=200-", 100).size());
+	}
+}
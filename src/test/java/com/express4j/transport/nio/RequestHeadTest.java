@@ -0,0 +1,80 @@
+package com.express4j.transport.nio;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RequestHeadTest {
+	@Test
+	public void waitsForTheRestOfTheHead() throws Exception {
+		ByteBuffer buffer = buffer("GET / HTTP/1.1\r\nHost: localhost\r\n", 1024);
+		assertNull(RequestHead.parse(buffer, 1024));
+		assertEquals(0, buffer.position());
+	}
+	
+	@Test
+	public void parsesPipelinedHeads() throws Exception {
+		ByteBuffer buffer = buffer("GET /a HTTP/1.1\r\n\r\n\r\nGET /b HTTP/1.1\r\n\r\n", 1024);
+		assertEquals("/a", RequestHead.parse(buffer, 1024).uri);
+		assertEquals("/b", RequestHead.parse(buffer, 1024).uri);
+		assertTrue(!buffer.hasRemaining());
+	}
+	
+	@Test
+	public void rejectsAHeadThatFillsTheBuffer() {
+		char[] padding = new char[200];
+		Arrays.fill(padding, 'a');
+		// The limit is larger than the buffer, so only a full buffer can tell the head will never end
+		assertStatus(431, buffer("GET / HTTP/1.1\r\nX-Padding: " + new String(padding), 128), 8192);
+		assertStatus(431, buffer("GET / HTTP/1.1\r\nX-Padding: " + new String(padding), 1024), 128);
+		assertStatus(431, buffer("GET / HTTP/1.1\r\nX-Padding: " + new String(padding) + "\r\n\r\n", 1024), 128);
+	}
+	
+	@Test
+	public void readsTheBodyFraming() throws Exception {
+		RequestHead head = RequestHead.parse(buffer("POST / HTTP/1.1\r\nContent-Length: 12\r\nContent-Length: 12\r\n\r\n", 1024), 1024);
+		assertEquals(12, head.contentLength);
+		head = RequestHead.parse(buffer("POST / HTTP/1.1\r\nTransfer-Encoding: gzip, chunked\r\n\r\n", 1024), 1024);
+		assertTrue(head.chunked);
+	}
+	
+	@Test
+	public void rejectsAmbiguousBodyFraming() {
+		assertStatus(400, buffer("POST / HTTP/1.1\r\nContent-Length: 12\r\nContent-Length: 13\r\n\r\n", 1024), 1024);
+		assertStatus(400, buffer("POST / HTTP/1.1\r\nContent-Length: 12, 13\r\n\r\n", 1024), 1024);
+		assertStatus(400, buffer("POST / HTTP/1.1\r\nContent-Length: -1\r\n\r\n", 1024), 1024);
+		assertStatus(400, buffer("POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\nContent-Length: 12\r\n\r\n", 1024), 1024);
+		assertStatus(400, buffer("POST / HTTP/1.1\r\nTransfer-Encoding: chunked, gzip\r\n\r\n", 1024), 1024);
+	}
+	
+	@Test
+	public void checksTheRequestMethod() throws Exception {
+		assertEquals("M-SEARCH", RequestHead.parse(buffer("M-SEARCH * HTTP/1.1\r\n\r\n", 1024), 1024).method);
+		assertStatus(501, buffer("FOO / HTTP/1.1\r\n\r\n", 1024), 1024);
+		assertStatus(400, buffer("get / HTTP/1.1\r\n\r\n", 1024), 1024);
+	}
+	
+	private static ByteBuffer buffer(String head, int capacity) {
+		ByteBuffer buffer = ByteBuffer.allocate(capacity);
+		byte[] bytes = head.getBytes(StandardCharsets.ISO_8859_1);
+		buffer.put(bytes, 0, Math.min(bytes.length, capacity));
+		buffer.flip();
+		return buffer;
+	}
+	
+	private static void assertStatus(int status, ByteBuffer buffer, int maxSize) {
+		try {
+			RequestHead.parse(buffer, maxSize);
+			fail("Expected a " + status + " response.");
+		} catch(HttpException e) {
+			assertEquals(status, e.status);
+		}
+	}
+}